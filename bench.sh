@@ -0,0 +1,15 @@
+#!/bin/sh
+
+# Builds and runs the JMH benchmarks in chessGame/bench with the GC profiler
+# on. JMH is not bundled, so JMH_CP has to list the jmh-core and
+# jmh-generator-annprocess jars and their dependencies, separated by colons.
+# Any extra arguments are passed on to JMH, e.g. ./bench.sh ChessBoardBenchmark.move
+
+if [ -z "$JMH_CP" ]; then
+	echo "Set JMH_CP to the JMH jars first."
+	exit 1
+fi
+
+mkdir -p ./bench-out
+javac -cp "$JMH_CP" -sourcepath ./chessGame/src -d ./bench-out ./chessGame/bench/primary/*.java || exit 1
+java -cp "./bench-out:$JMH_CP" org.openjdk.jmh.Main -prof gc "$@"
@@ -0,0 +1,267 @@
+package primary;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH benchmarks for the hot paths of the board and rules code. Every
+ * benchmark works on the same middlegame position, so numbers can be
+ * compared before and after a change. It sits in package primary so it can
+ * reach the protected rule checks directly.
+ * <br>
+ * Run with ./bench.sh from the top of the project, or through main(), which
+ * turns on the GC profiler to report allocation per operation.
+ *
+ * @author Ethan Arns
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChessBoardBenchmark {
+
+	/** A busy middlegame position with every piece type still on the board */
+	public static final String POSITION = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+	/** Depth of the search benchmark */
+	public static final int SEARCH_DEPTH = 5;
+
+	private ChessBoard_ai board;
+	private Piece target;
+	private Piece shuffler;
+	private int moves[];
+	private File saveFile;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		board = new ChessBoard_ai();
+		board.loadFen(POSITION);
+		moves = new int[MoveGenerator.MAX_MOVES];
+		target = board.getKing("black");
+		//a knight that can hop out and back without changing anything else
+		shuffler = board.getPiece(5, 2);
+		saveFile = File.createTempFile("bench", ".chs");
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		saveFile.delete();
+	}
+
+	/**
+	 * A board of its own plus one white piece of each type in turn, for the
+	 * benchmarks that depend on the kind of piece
+	 */
+	@State(Scope.Thread)
+	public static class PieceChoice {
+		@Param({"Pawn", "Knight", "Bishop", "Rook", "Queen", "King"})
+		public String pieceType;
+
+		ChessBoard_ai board;
+		Piece piece;
+
+		@Setup(Level.Trial)
+		public void setUp() {
+			board = new ChessBoard_ai();
+			board.loadFen(POSITION);
+			for(Piece p : board.getWhitePieces()){
+				if(p.getClass().getSimpleName().equals(pieceType))
+					piece = p;
+			}
+		}
+	}
+
+	/**
+	 * Every relative offset canMove() would try, for one piece of the chosen
+	 * type
+	 */
+	@Benchmark
+	public int moveCheckAssigner(PieceChoice choice) {
+		int legal = 0;
+		Piece piece = choice.piece;
+		for(int i = -7; i < 8; i++){
+			for(int j = -7; j < 8; j++){
+				if(!(i == 0 && j == 0) && choice.board.isOnBoard(piece.getXpos() + i, piece.getYpos() + j) &&
+						choice.board.moveCheckAssigner(piece, i, j))
+					legal++;
+			}
+		}
+		return legal;
+	}
+
+	/**
+	 * A fresh board for every fixed depth search, with the search features
+	 * picked by name, so each search starts from an empty transposition
+	 * table and the same ordering tables. "all" turns on everything, and
+	 * each selective feature is also tried alone on top of PVS and
+	 * aspiration windows. The number of positions the last search looked at
+	 * is printed at the end of the trial, since the time alone doesn't show
+	 * where it went.
+	 */
+	@State(Scope.Thread)
+	public static class SearchChoice {
+		@Param({"alphabeta", "pvs", "pvs+aspiration", "pvs+aspiration+nullmove", "pvs+aspiration+lmr",
+			"pvs+aspiration+futility", "pvs+aspiration+checks", "all"})
+		public String features;
+
+		ChessBoard_ai board;
+		long nodes;
+
+		@Setup(Level.Invocation)
+		public void setUp() {
+			board = new ChessBoard_ai();
+			board.setDebug(false);
+			board.setHashSize(4);
+			board.loadFen(POSITION);
+			board.setPrincipalVariationSearch(uses("pvs"));
+			board.setAspirationWindows(uses("aspiration"));
+			board.setNullMovePruning(uses("nullmove"));
+			board.setLateMoveReductions(uses("lmr"));
+			board.setFutilityPruning(uses("futility"));
+			board.setCheckExtensions(uses("checks"));
+		}
+
+		private boolean uses(String feature) {
+			return features.equals("all") || features.contains(feature);
+		}
+
+		@TearDown(Level.Trial)
+		public void report() {
+			System.out.println();
+			System.out.println(features + ": " + nodes + " nodes per search");
+		}
+	}
+
+	@Benchmark
+	public int search(SearchChoice choice) {
+		SearchResult result = choice.board.search(SEARCH_DEPTH, 0, 0);
+		choice.nodes = result.getNodes();
+		return result.getBestMove();
+	}
+
+	@Benchmark
+	public boolean canMove(PieceChoice choice) {
+		return choice.board.canMove(choice.piece);
+	}
+
+	@Benchmark
+	public boolean isInCheck() {
+		return board.isInCheck("black");
+	}
+
+	@Benchmark
+	public Object piecesThatCanCaptureThis() {
+		return board.piecesThatCanCaptureThis(target);
+	}
+
+	@Benchmark
+	public void refreshPieceList() {
+		board.refreshPieceList();
+	}
+
+	/**
+	 * move() out, then taken back, so the board and its undo stack are the
+	 * same afterwards
+	 */
+	@Benchmark
+	public boolean move() {
+		return board.move(shuffler, 1, -2) & board.unmakeMove();
+	}
+
+	/**
+	 * A copy like the ones handed to each root move of a parallel search
+	 */
+	@Benchmark
+	public ChessBoard_ai copyBoard() {
+		return new ChessBoard_ai(board);
+	}
+
+	@Benchmark
+	public void makeUnmakeMove(Blackhole bh) {
+		int count = board.generateMoves(moves);
+		for(int i = 0; i < count; i++){
+			board.makeMove(moves[i]);
+			bh.consume(board.getHash());
+			board.unmakeMove();
+		}
+	}
+
+	@Benchmark
+	public int evaluate() {
+		return board.evaluate();
+	}
+
+	@Benchmark
+	public int generateMoves() {
+		return board.generateMoves(moves);
+	}
+
+	@Benchmark
+	public int legalMoves() {
+		return board.legalMoves(moves);
+	}
+
+	/**
+	 * The captures and promotions only, as quiescence search asks for them
+	 */
+	@Benchmark
+	public int legalCaptures() {
+		return MoveGenerator.generateLegalCaptures(board.bits, moves);
+	}
+
+	/**
+	 * Saves the pieces the way ChessPlayGui.saveFile() does, then loads them
+	 * back the way ChessPlayGui.loadFile() does
+	 */
+	@Benchmark
+	public boolean saveLoadRoundTrip() throws IOException {
+		BufferedWriter writer = new BufferedWriter(new FileWriter(saveFile));
+		writer.write(board.getTurn());
+		writer.newLine();
+		writer.write("1");
+		writer.newLine();
+		board.writePieces(writer);
+		writer.close();
+
+		BufferedReader reader = new BufferedReader(new FileReader(saveFile));
+		reader.readLine();
+		reader.readLine();
+		boolean ok = board.readPieces(reader);
+		reader.close();
+		return ok;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+			.include(ChessBoardBenchmark.class.getSimpleName())
+			.addProfiler(GCProfiler.class)
+			.build();
+		new Runner(options).run();
+	}
+}
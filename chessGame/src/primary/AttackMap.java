@@ -0,0 +1,188 @@
+package primary;
+
+/**
+ * Attack and defend maps for both colors of a BitBoard. For every square it
+ * keeps the squares attacked by the piece standing there, and for every
+ * color and square how many of that color's pieces attack it, along with a
+ * word of every square each color attacks at all.
+ * <br>
+ * The maps follow the board as it changes instead of being worked out again
+ * for each question. The board notes which squares each move changes, and
+ * the map catches up on all of them the next time it is asked for, so a
+ * board that is searched after one question doesn't pay for the map on
+ * every move. When some squares change, the pieces now on them get
+ * new attack sets, and so does any rook, bishop or queen whose old attack
+ * set reached one of them, since that is the only way a change can
+ * lengthen or shorten a line. Everything else stays as it was.
+ * <br>
+ * A BitBoard only creates its map the first time it is asked for one (see
+ * BitBoard.getAttackMap()), so boards that never need it don't pay for the
+ * updates. A map that is kept hold of goes out of date as soon as the
+ * board changes, so ask the board for it again instead.
+ *
+ * @author Ethan Arns
+ */
+public class AttackMap {
+
+	private final BitBoard board;
+	private long attacksFrom[];
+	//color each stored attack set was counted for
+	private int ownerOf[];
+	private int counts[][];
+	private long attacked[];
+
+	/**
+	 * Creates the maps for a board and fills them in from its current
+	 * position
+	 * @param board   board to follow
+	 */
+	public AttackMap(BitBoard board){
+		this.board = board;
+		attacksFrom = new long[64];
+		ownerOf = new int[64];
+		counts = new int[2][64];
+		attacked = new long[2];
+		rebuild();
+	}
+
+	/**
+	 * Works every map out again from scratch
+	 */
+	public void rebuild(){
+		for(int sq = 0; sq < 64; sq++){
+			attacksFrom[sq] = 0L;
+			counts[BitBoard.WHITE][sq] = 0;
+			counts[BitBoard.BLACK][sq] = 0;
+		}
+		attacked[BitBoard.WHITE] = 0L;
+		attacked[BitBoard.BLACK] = 0L;
+		long occ = board.getAll();
+		while(occ != 0){
+			int sq = Long.numberOfTrailingZeros(occ);
+			refresh(sq);
+			occ &= occ - 1;
+		}
+	}
+
+	/**
+	 * Brings the maps up to date after the contents of some squares changed.
+	 * The squares can have changed over any number of moves, since a line
+	 * can only have changed if some square it reached did.
+	 * @param changed   word of the squares whose contents changed
+	 */
+	public void update(long changed){
+		long c = changed;
+		while(c != 0){
+			int sq = Long.numberOfTrailingZeros(c);
+			refresh(sq);
+			c &= c - 1;
+		}
+		long sliders = 0L;
+		for(int color = BitBoard.WHITE; color <= BitBoard.BLACK; color++){
+			sliders |= board.getPieces(color, BitBoard.BISHOP) | board.getPieces(color, BitBoard.ROOK) |
+				board.getPieces(color, BitBoard.QUEEN);
+		}
+		sliders &= ~changed;
+		while(sliders != 0){
+			int sq = Long.numberOfTrailingZeros(sliders);
+			if((attacksFrom[sq] & changed) != 0)
+				refresh(sq);
+			sliders &= sliders - 1;
+		}
+	}
+
+	/**
+	 * Gets the squares attacked by the piece on a square
+	 * @param sq   square index
+	 * @return     word of attacked squares, 0 if the square is empty
+	 */
+	public long attacksFrom(int sq){
+		return attacksFrom[sq];
+	}
+
+	/**
+	 * Gets every square a color attacks
+	 * @param color   BitBoard.WHITE or BitBoard.BLACK
+	 * @return        word of attacked squares
+	 */
+	public long attacked(int color){
+		return attacked[color];
+	}
+
+	/**
+	 * Gets how many pieces of a color attack a square
+	 * @param color   BitBoard.WHITE or BitBoard.BLACK
+	 * @param sq      square index
+	 * @return        number of attackers
+	 */
+	public int count(int color, int sq){
+		return counts[color][sq];
+	}
+
+	/**
+	 * Checks if a color attacks a square
+	 * @param sq      square index
+	 * @param color   BitBoard.WHITE or BitBoard.BLACK
+	 * @return        true if at least one piece of that color attacks it
+	 */
+	public boolean isAttacked(int sq, int color){
+		return (attacked[color] & BitBoard.bit(sq)) != 0;
+	}
+
+	/**
+	 * Finds the pieces of a color that attack a square
+	 * @param sq      square index
+	 * @param color   BitBoard.WHITE or BitBoard.BLACK
+	 * @return        word of the squares those pieces stand on
+	 */
+	public long attackersTo(int sq, int color){
+		long result = 0L;
+		if(counts[color][sq] == 0)
+			return result;
+		long b = BitBoard.bit(sq);
+		long own = board.getOccupied(color);
+		while(own != 0){
+			int from = Long.numberOfTrailingZeros(own);
+			if((attacksFrom[from] & b) != 0)
+				result |= BitBoard.bit(from);
+			own &= own - 1;
+		}
+		return result;
+	}
+
+	/**
+	 * Works out the attacks of whatever is on a square now, and swaps them in
+	 * for the ones stored, taking the old set off the counts of the color it
+	 * was counted for and adding the new one
+	 */
+	private void refresh(int sq){
+		long old = attacksFrom[sq];
+		if(old != 0)
+			adjust(ownerOf[sq], old, -1);
+		int code = board.pieceAt(sq);
+		long attacks = 0L;
+		if(code != BitBoard.EMPTY){
+			attacks = Attacks.of(code, sq, board.getAll());
+			ownerOf[sq] = BitBoard.colorOf(code);
+			adjust(ownerOf[sq], attacks, 1);
+		}
+		attacksFrom[sq] = attacks;
+	}
+
+	/**
+	 * Adds to or takes from the counts of every square in a word, keeping
+	 * the attacked word in step
+	 */
+	private void adjust(int color, long squares, int delta){
+		int count[] = counts[color];
+		while(squares != 0){
+			int sq = Long.numberOfTrailingZeros(squares);
+			count[sq] += delta;
+			if(count[sq] == 0)
+				attacked[color] &= ~BitBoard.bit(sq);
+			else
+				attacked[color] |= BitBoard.bit(sq);
+			squares &= squares - 1;
+		}
+	}
+}
@@ -0,0 +1,299 @@
+package primary;
+
+/**
+ * Precomputed attack tables. Knights, kings and pawns always attack the same
+ * squares from a given square, so those are plain per-square lookups. For
+ * the sliding pieces, rook and bishop attacks
+ * are looked up with "magic" multiplication: the blockers on a piece's lines
+ * are masked out of the occupancy word, multiplied by a per-square magic
+ * number and shifted down into an index for that square's table. The magic
+ * numbers below were found once by trying random sparse numbers until one
+ * gave no collisions, and are written in as constants, so loading the class
+ * only fills the tables in. Every lookup is then a handful of operations no
+ * matter how far the lines reach. Queens are the union of the two.
+ * <br>
+ * There are also tables of the squares between and the whole line through
+ * any two squares that share a rank, file or diagonal, which are what pins
+ * and checks are worked out with.
+ *
+ * @author Ethan Arns
+ */
+public final class Attacks {
+
+	private static final long knightTable[] = new long[64];
+	private static final long kingTable[] = new long[64];
+	private static final long pawnTable[][] = new long[2][64];
+
+	private static final long rookMask[] = new long[64];
+	private static final long bishopMask[] = new long[64];
+	private static final long rookMagic[] = {
+		0x008000908064C000L, 0x0040200040001000L, 0x0180100080A0010AL, 0x8880041000800800L,
+		0x1200100201200804L, 0x0200020004011008L, 0x2180010000800600L, 0x0200005088210204L,
+		0x0000800080204001L, 0x1000804000802001L, 0x8240801000200080L, 0x8611001004200900L,
+		0x008180800C001800L, 0x0100800200800400L, 0x0A02000102000408L, 0x8020802300104280L,
+		0x0080004000402000L, 0xE010104000402000L, 0x0800808010002000L, 0xA280210008100100L,
+		0x0001818014000800L, 0xA002010100080400L, 0x0008040088020130L, 0x0001020004048845L,
+		0x0081826280004004L, 0x2020810900284000L, 0x0200100080802000L, 0x0200080080100080L,
+		0x8083080100100500L, 0x4406000901000400L, 0x0005020080800100L, 0x0090204200008114L,
+		0x0010400094800420L, 0x0900804000802002L, 0x0201001841002000L, 0x4100080080801000L,
+		0x4540040080800800L, 0x0000800400800200L, 0x9281800100808200L, 0x8004048102000854L,
+		0x4420802040008006L, 0x0880500020004002L, 0x0801200241050010L, 0x8400080010008080L,
+		0x0008000500090010L, 0x0082009084020008L, 0x4012000108020004L, 0x9000104D08860004L,
+		0x2004204114800100L, 0x0148802112400300L, 0x0202842000100880L, 0x001B080080900080L,
+		0x001A002008100600L, 0x0004008004020080L, 0x5181000600040300L, 0x0000044401128A00L,
+		0x8044110480002441L, 0x1023012082044112L, 0x00804080200A0012L, 0x000420310A004A42L,
+		0x0023001004020801L, 0x0882001008040102L, 0x000230088118020CL, 0x0000019025040042L
+	};
+	private static final long bishopMagic[] = {
+		0x1010220204082A00L, 0x80E0020202002804L, 0x2008480104200020L, 0x000220920280002DL,
+		0x32040421000B0284L, 0x1002080404000400L, 0x0004160892080040L, 0x2203024206204201L,
+		0x0002404264010200L, 0x1120908408428124L, 0xB100424403002280L, 0x240008060440C288L,
+		0x2040040420490400L, 0x0100620210040022L, 0x0400084104202028L, 0x0010050080908820L,
+		0x0C90A04490824802L, 0x000200A008210130L, 0x0C08001000204010L, 0x0008000186014480L,
+		0x0601044820080021L, 0x0002000101013100L, 0x1400A08108080204L, 0x0250401104485410L,
+		0x4820240810142843L, 0x0009142A20182200L, 0x0848140048440020L, 0x2020120000400440L,
+		0x0108840200802003L, 0x0009070082009492L, 0x020C0C0038424245L, 0xCA44005808210410L,
+		0x8011212000500404L, 0x2028840510101008L, 0x0004042A00041400L, 0x0624020080980080L,
+		0x1820410040840040L, 0x2201004202050100L, 0x402A088A24040224L, 0x0242061040002400L,
+		0x90020202400821A0L, 0x00C9009004E01002L, 0x58C2060202023100L, 0x0000012214040800L,
+		0x0210846810100200L, 0x0004208081010200L, 0x01A4108404442100L, 0x8054082C80280106L,
+		0x0004144904104208L, 0x00324C0A11104000L, 0x1000020231040100L, 0x2080001042020004L,
+		0x0544021020288104L, 0x1103501408083020L, 0x4010451004960002L, 0x003010091C44902CL,
+		0x0102402884202000L, 0x0480804C00841086L, 0x04602C8602210400L, 0x0000004000420200L,
+		0x0040000020442C18L, 0x4483804089094100L, 0x80000B0248020400L, 0x0045010808008680L
+	};
+	private static final int rookShift[] = new int[64];
+	private static final int bishopShift[] = new int[64];
+	private static final long rookTable[][] = new long[64][];
+	private static final long bishopTable[][] = new long[64][];
+	private static final long betweenTable[][] = new long[64][64];
+	private static final long lineTable[][] = new long[64][64];
+
+	private static final int KNIGHT_STEPS[][] = {{2,1},{2,-1},{-2,1},{-2,-1},{1,2},{1,-2},{-1,2},{-1,-2}};
+	private static final int KING_STEPS[][] = {{1,0},{1,-1},{0,-1},{-1,-1},{-1,0},{-1,1},{0,1},{1,1}};
+	private static final int ROOK_DIRS[][] = {{0,1},{0,-1},{-1,0},{1,0}};
+	private static final int BISHOP_DIRS[][] = {{-1,1},{1,-1},{-1,-1},{1,1}};
+
+	static {
+		for(int sq = 0; sq < 64; sq++){
+			knightTable[sq] = stepAttacks(sq, KNIGHT_STEPS);
+			kingTable[sq] = stepAttacks(sq, KING_STEPS);
+			pawnTable[BitBoard.WHITE][sq] = stepAttacks(sq, new int[][]{{-1,1},{1,1}});
+			pawnTable[BitBoard.BLACK][sq] = stepAttacks(sq, new int[][]{{-1,-1},{1,-1}});
+			rookMask[sq] = relevantMask(sq, ROOK_DIRS);
+			bishopMask[sq] = relevantMask(sq, BISHOP_DIRS);
+			rookShift[sq] = 64 - Long.bitCount(rookMask[sq]);
+			bishopShift[sq] = 64 - Long.bitCount(bishopMask[sq]);
+			rookTable[sq] = new long[1 << Long.bitCount(rookMask[sq])];
+			bishopTable[sq] = new long[1 << Long.bitCount(bishopMask[sq])];
+			fillTable(sq, rookMask[sq], rookMagic[sq], rookShift[sq], rookTable[sq], ROOK_DIRS);
+			fillTable(sq, bishopMask[sq], bishopMagic[sq], bishopShift[sq], bishopTable[sq], BISHOP_DIRS);
+		}
+		for(int a = 0; a < 64; a++){
+			for(int b = 0; b < 64; b++){
+				if(a == b)
+					continue;
+				long ends = BitBoard.bit(a) | BitBoard.bit(b);
+				if((rook(a, 0L) & BitBoard.bit(b)) != 0){
+					betweenTable[a][b] = rook(a, BitBoard.bit(b)) & rook(b, BitBoard.bit(a));
+					lineTable[a][b] = (rook(a, 0L) & rook(b, 0L)) | ends;
+				}
+				else if((bishop(a, 0L) & BitBoard.bit(b)) != 0){
+					betweenTable[a][b] = bishop(a, BitBoard.bit(b)) & bishop(b, BitBoard.bit(a));
+					lineTable[a][b] = (bishop(a, 0L) & bishop(b, 0L)) | ends;
+				}
+			}
+		}
+	}
+
+	private Attacks(){
+	}
+
+	/**
+	 * Squares attacked by a knight
+	 * @param sq   square the knight stands on
+	 * @return     bitboard of attacked squares
+	 */
+	public static long knight(int sq){
+		return knightTable[sq];
+	}
+
+	/**
+	 * Squares attacked by a king
+	 * @param sq   square the king stands on
+	 * @return     bitboard of attacked squares
+	 */
+	public static long king(int sq){
+		return kingTable[sq];
+	}
+
+	/**
+	 * Squares a pawn could capture on. This is only the diagonals, since a
+	 * pawn's forward step never captures.
+	 * @param color   color of the pawn, which decides its direction
+	 * @param sq      square the pawn stands on
+	 * @return        bitboard of attacked squares
+	 */
+	public static long pawn(int color, int sq){
+		return pawnTable[color][sq];
+	}
+
+	/**
+	 * Squares attacked by a rook, including the first blocker on each line
+	 * whatever its color
+	 * @param sq    square the rook stands on
+	 * @param occ   occupancy of the whole board
+	 * @return      bitboard of attacked squares
+	 */
+	public static long rook(int sq, long occ){
+		return rookTable[sq][(int)(((occ & rookMask[sq]) * rookMagic[sq]) >>> rookShift[sq])];
+	}
+
+	/**
+	 * Squares attacked by a bishop, including the first blocker on each line
+	 * whatever its color
+	 * @param sq    square the bishop stands on
+	 * @param occ   occupancy of the whole board
+	 * @return      bitboard of attacked squares
+	 */
+	public static long bishop(int sq, long occ){
+		return bishopTable[sq][(int)(((occ & bishopMask[sq]) * bishopMagic[sq]) >>> bishopShift[sq])];
+	}
+
+	/**
+	 * Squares attacked by a queen, including the first blocker on each line
+	 * whatever its color
+	 * @param sq    square the queen stands on
+	 * @param occ   occupancy of the whole board
+	 * @return      bitboard of attacked squares
+	 */
+	public static long queen(int sq, long occ){
+		return rook(sq, occ) | bishop(sq, occ);
+	}
+
+	/**
+	 * Squares attacked by any kind of piece
+	 * @param code   BitBoard piece code
+	 * @param sq     square the piece stands on
+	 * @param occ    occupancy of the whole board
+	 * @return       bitboard of attacked squares
+	 */
+	public static long of(int code, int sq, long occ){
+		switch(BitBoard.typeOf(code)){
+		case BitBoard.PAWN:
+			return pawn(BitBoard.colorOf(code), sq);
+		case BitBoard.KNIGHT:
+			return knight(sq);
+		case BitBoard.BISHOP:
+			return bishop(sq, occ);
+		case BitBoard.ROOK:
+			return rook(sq, occ);
+		case BitBoard.QUEEN:
+			return queen(sq, occ);
+		default:
+			return king(sq);
+		}
+	}
+
+
+	/**
+	 * Squares strictly between two squares on the same rank, file or
+	 * diagonal
+	 * @param a   one square
+	 * @param b   the other square
+	 * @return    bitboard of the squares between, 0 if they don't line up
+	 */
+	public static long between(int a, int b){
+		return betweenTable[a][b];
+	}
+
+	/**
+	 * The whole rank, file or diagonal through two squares, edge to edge
+	 * @param a   one square
+	 * @param b   the other square
+	 * @return    bitboard of the line, 0 if they don't line up
+	 */
+	public static long line(int a, int b){
+		return lineTable[a][b];
+	}
+
+
+	/*
+	 * Table construction, only run from the static initializer
+	 */
+
+	/**
+	 * Collects the squares a fixed set of single steps lands on, dropping
+	 * any that fall off the board
+	 */
+	private static long stepAttacks(int sq, int steps[][]){
+		long attacks = 0L;
+		for(int d[] : steps){
+			int x = BitBoard.xOf(sq) + d[0];
+			int y = BitBoard.yOf(sq) + d[1];
+			if(x >= 0 && x < 8 && y >= 0 && y < 8)
+				attacks |= BitBoard.bit(BitBoard.square(x, y));
+		}
+		return attacks;
+	}
+
+	/**
+	 * Walks the given directions from a square, stopping on (and including)
+	 * the first occupied square. Slow, but only used to fill the tables.
+	 */
+	private static long slowAttacks(int sq, long occ, int dirs[][]){
+		long attacks = 0L;
+		for(int d[] : dirs){
+			int x = BitBoard.xOf(sq) + d[0];
+			int y = BitBoard.yOf(sq) + d[1];
+			while(x >= 0 && x < 8 && y >= 0 && y < 8){
+				long b = BitBoard.bit(BitBoard.square(x, y));
+				attacks |= b;
+				if((occ & b) != 0)
+					break;
+				x += d[0];
+				y += d[1];
+			}
+		}
+		return attacks;
+	}
+
+	/**
+	 * The squares whose occupancy matters to a slider. The last square of
+	 * every line is left out, since a piece there can't block anything
+	 * further along.
+	 */
+	private static long relevantMask(int sq, int dirs[][]){
+		long mask = 0L;
+		for(int d[] : dirs){
+			int x = BitBoard.xOf(sq) + d[0];
+			int y = BitBoard.yOf(sq) + d[1];
+			while(x + d[0] >= 0 && x + d[0] < 8 && y + d[1] >= 0 && y + d[1] < 8){
+				mask |= BitBoard.bit(BitBoard.square(x, y));
+				x += d[0];
+				y += d[1];
+			}
+		}
+		return mask;
+	}
+
+	/**
+	 * Fills in a square's table for its magic number, going through every
+	 * blocker subset of the mask. A magic that sent two different attack
+	 * sets to the same slot would give wrong attacks, so that is checked.
+	 */
+	private static void fillTable(int sq, long mask, long magic, int shift, long table[], int dirs[][]){
+		int size = 1 << Long.bitCount(mask);
+		boolean used[] = new boolean[size];
+		long subset = 0L;
+		for(int i = 0; i < size; i++){
+			long attacks = slowAttacks(sq, subset, dirs);
+			int index = (int)((subset * magic) >>> shift);
+			if(used[index] && table[index] != attacks)
+				throw new IllegalStateException("Bad magic number for square " + sq);
+			used[index] = true;
+			table[index] = attacks;
+			subset = (subset - mask) & mask;//carry-rippler, steps through every subset
+		}
+	}
+}
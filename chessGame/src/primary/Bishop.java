@@ -10,8 +10,12 @@ public class Bishop extends Piece {
 		super(color, position);
 	}
 
+	public int getType(){
+		return BitBoard.BISHOP;
+	}
+
 	public String symbol(){
-		return this.color.equalsIgnoreCase("white")? "B" : "b";
+		return isWhite() ? "B" : "b";
 	}
 
 }
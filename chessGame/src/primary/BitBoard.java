@@ -0,0 +1,829 @@
+package primary;
+
+import java.util.Arrays;
+
+/**
+ * A bitboard representation of a chess position. Every piece type of every
+ * color gets its own 64 bit word with one bit per square, and there are extra
+ * occupancy words for each color and for the whole board. ChessBoard keeps
+ * one of these in step with its piece matrix, so questions about the board
+ * can be answered with a few bit operations instead of walking Piece objects.
+ * <br>
+ * Squares are numbered from 0 at (0,0) to 63 at (7,7), running along x
+ * first, so a square is y * 8 + x. Pieces are stored as small integer codes
+ * where the lowest bit is the color and the rest is the piece type. A byte
+ * per square holding those codes is kept alongside the bitboards, so finding
+ * what stands on a square is a single array read.
+ * <br>
+ * Moves can be made and taken back with makeMove() and unmakeMove(). The
+ * information needed to undo each move is pushed onto preallocated stacks,
+ * so walking the board back and forth does not create any objects.
+ * Castling, en passant and promotion are all handled there too, by the flags
+ * on the packed move (see Move), so an ordinary move only pays for a couple
+ * of flag tests.
+ * <br>
+ * Besides the pieces the position holds which castling rights are left and
+ * the square a Pawn can be taken en passant on, if any. That square is only
+ * set when an enemy Pawn is actually next to the Pawn that jumped, so the
+ * same position reached in different ways hashes the same.
+ * <br>
+ * A 64 bit Zobrist hash of the position (see Zobrist) is kept up to date by
+ * every change made through this class, and so are the attack maps (see
+ * AttackMap) once they have been asked for.
+ * <br>
+ * The piece-square table sums the evaluation is made from (see
+ * PieceSquareTables) are kept the same way, by the one method every piece
+ * goes on and off the board through.
+ * <br>
+ * The hash undo stack doubles as the game's history for spotting repeated
+ * positions. A halfmove clock counts the moves since the last capture or
+ * Pawn move, which is both the fifty-move rule count and how far back a
+ * repeat could possibly be, since nothing before such a move can come
+ * round again.
+ *
+ * @author Ethan Arns
+ */
+public class BitBoard {
+
+	public static final int WHITE = 0;
+	public static final int BLACK = 1;
+
+	public static final int PAWN   = 0;
+	public static final int KNIGHT = 1;
+	public static final int BISHOP = 2;
+	public static final int ROOK   = 3;
+	public static final int QUEEN  = 4;
+	public static final int KING   = 5;
+
+	/** Code returned by pieceAt() for a square with nothing on it */
+	public static final int EMPTY = -1;
+
+	/** En passant square when no Pawn can be taken that way */
+	public static final int NO_SQUARE = -1;
+
+	//castling rights bits. The board is mirrored, so the King side is toward x = 0
+	public static final int WHITE_KINGSIDE  = 1;
+	public static final int WHITE_QUEENSIDE = 2;
+	public static final int BLACK_KINGSIDE  = 4;
+	public static final int BLACK_QUEENSIDE = 8;
+	public static final int ALL_CASTLING    = 15;
+
+	/** Rights that survive a move from or to each square */
+	private static final int castlingMask[] = new int[64];
+
+	static {
+		for(int sq = 0; sq < 64; sq++)
+			castlingMask[sq] = ALL_CASTLING;
+		castlingMask[square(3, 0)] &= ~(WHITE_KINGSIDE | WHITE_QUEENSIDE);
+		castlingMask[square(0, 0)] &= ~WHITE_KINGSIDE;
+		castlingMask[square(7, 0)] &= ~WHITE_QUEENSIDE;
+		castlingMask[square(3, 7)] &= ~(BLACK_KINGSIDE | BLACK_QUEENSIDE);
+		castlingMask[square(0, 7)] &= ~BLACK_KINGSIDE;
+		castlingMask[square(7, 7)] &= ~BLACK_QUEENSIDE;
+	}
+
+	protected long pieces[];
+	protected byte mailbox[];
+	protected long occupied[];
+	protected long all;
+	protected int side;
+	protected long hash;
+	protected int castling;
+	protected int epSquare;
+	protected int halfmove;
+	//piece-square table sums, white minus black, and the game phase
+	protected int mgScore;
+	protected int egScore;
+	protected int phase;
+	//created by getAttackMap(). Changes are gathered up in attackChanges
+	//and only passed on to it when it is next asked for
+	protected AttackMap attackMap;
+	protected long attackChanges;
+
+	//undo stacks, one entry per move made
+	protected int ply;
+	protected int moveStack[];
+	protected int movedStack[];
+	protected int capturedStack[];
+	protected long hashStack[];
+	protected int castlingStack[];
+	protected int epStack[];
+	protected int halfmoveStack[];
+	//stack entries below this came from the board copied, and are only
+	//there to look for repeats in, not to be taken back
+	protected int base;
+
+	/**
+	 * Creates an empty board with white to move
+	 */
+	public BitBoard(){
+		this(1024);
+	}
+
+	/**
+	 * Copies another board's position: its pieces, side to move, castling
+	 * rights, en passant square and hash. It is all flat arrays, so this is
+	 * a handful of array copies. Moves made on the other board can't be
+	 * taken back on the copy, so its undo stacks start out small, and its
+	 * attack maps are only made if they are asked for. The hashes of the
+	 * positions since the last capture or Pawn move are copied too, so
+	 * repeats of them are still seen.
+	 * @param other   board to copy
+	 */
+	public BitBoard(BitBoard other){
+		this(Math.max(64, Math.min(other.halfmove, other.ply) + 64));
+		//bring along the positions a repeat could still come from
+		base = Math.min(other.halfmove, other.ply);
+		System.arraycopy(other.hashStack, other.ply - base, hashStack, 0, base);
+		ply = base;
+		halfmove = other.halfmove;
+		System.arraycopy(other.pieces, 0, pieces, 0, pieces.length);
+		System.arraycopy(other.mailbox, 0, mailbox, 0, mailbox.length);
+		occupied[WHITE] = other.occupied[WHITE];
+		occupied[BLACK] = other.occupied[BLACK];
+		all = other.all;
+		side = other.side;
+		hash = other.hash;
+		castling = other.castling;
+		epSquare = other.epSquare;
+		mgScore = other.mgScore;
+		egScore = other.egScore;
+		phase = other.phase;
+	}
+
+	/**
+	 * Creates an empty board with undo stacks of the given size
+	 */
+	private BitBoard(int stackSize){
+		pieces = new long[12];
+		mailbox = new byte[64];
+		Arrays.fill(mailbox, (byte)EMPTY);
+		occupied = new long[2];
+		all = 0L;
+		side = WHITE;
+		hash = 0L;
+		castling = 0;
+		epSquare = NO_SQUARE;
+		halfmove = 0;
+		ply = 0;
+		base = 0;
+		moveStack = new int[stackSize];
+		movedStack = new int[stackSize];
+		capturedStack = new int[stackSize];
+		hashStack = new long[stackSize];
+		castlingStack = new int[stackSize];
+		epStack = new int[stackSize];
+		halfmoveStack = new int[stackSize];
+	}
+
+
+	/*
+	 * Square and piece code helpers
+	 */
+
+	/**
+	 * Converts board coordinates to a square index
+	 * @param x   x coordinate
+	 * @param y   y coordinate
+	 * @return    square index from 0 to 63
+	 */
+	public static int square(int x, int y){
+		return (y << 3) | x;
+	}
+
+	/**
+	 * Gets the x coordinate of a square index
+	 * @param sq   square index
+	 * @return     x coordinate
+	 */
+	public static int xOf(int sq){
+		return sq & 7;
+	}
+
+	/**
+	 * Gets the y coordinate of a square index
+	 * @param sq   square index
+	 * @return     y coordinate
+	 */
+	public static int yOf(int sq){
+		return sq >>> 3;
+	}
+
+	/**
+	 * Gets the single bit word for a square
+	 * @param sq   square index
+	 * @return     word with only that square's bit set
+	 */
+	public static long bit(int sq){
+		return 1L << sq;
+	}
+
+	/**
+	 * Builds a piece code out of a color and a piece type
+	 * @param color   WHITE or BLACK
+	 * @param type    PAWN through KING
+	 * @return        the piece code
+	 */
+	public static int code(int color, int type){
+		return (type << 1) | color;
+	}
+
+	/**
+	 * Gets the color part of a piece code
+	 * @param code   piece code
+	 * @return       WHITE or BLACK
+	 */
+	public static int colorOf(int code){
+		return code & 1;
+	}
+
+	/**
+	 * Gets the type part of a piece code
+	 * @param code   piece code
+	 * @return       PAWN through KING
+	 */
+	public static int typeOf(int code){
+		return code >>> 1;
+	}
+
+
+	/*
+	 * Board state
+	 */
+
+	/**
+	 * Removes every piece from the board and forgets the moves made so far,
+	 * along with the castling rights, en passant square and halfmove clock.
+	 * The side to move is left alone.
+	 */
+	public void clear(){
+		ply = 0;
+		base = 0;
+		halfmove = 0;
+		for(int i = 0; i < pieces.length; i++)
+			pieces[i] = 0L;
+		Arrays.fill(mailbox, (byte)EMPTY);
+		occupied[WHITE] = 0L;
+		occupied[BLACK] = 0L;
+		all = 0L;
+		castling = 0;
+		epSquare = NO_SQUARE;
+		mgScore = 0;
+		egScore = 0;
+		phase = 0;
+		hash = side == BLACK ? Zobrist.side() : 0L;
+		attackChanges = ~0L;
+	}
+
+	/**
+	 * Sets the contents of a square, removing whatever was there before
+	 * @param sq     square index
+	 * @param code   piece code to place, or EMPTY to clear the square
+	 */
+	public void set(int sq, int code){
+		long b = bit(sq);
+		int old = mailbox[sq];
+		if(old != EMPTY){
+			hash ^= Zobrist.piece(old, sq);
+			toggle(old, sq);
+		}
+		if(code != EMPTY){
+			toggle(code, sq);
+			hash ^= Zobrist.piece(code, sq);
+		}
+		attackChanges |= b;
+	}
+
+	/**
+	 * Finds the code of the piece standing on a square
+	 * @param sq   square index
+	 * @return     piece code, or EMPTY if nothing is there
+	 */
+	public int pieceAt(int sq){
+		return mailbox[sq];
+	}
+
+	/**
+	 * Gets the word of every piece of one type and color
+	 * @param color   WHITE or BLACK
+	 * @param type    PAWN through KING
+	 * @return        bitboard of those pieces
+	 */
+	public long getPieces(int color, int type){
+		return pieces[code(color, type)];
+	}
+
+	/**
+	 * Gets the word of every piece of one color
+	 * @param color   WHITE or BLACK
+	 * @return        bitboard of that color's pieces
+	 */
+	public long getOccupied(int color){
+		return occupied[color];
+	}
+
+	/**
+	 * Gets the word of every piece on the board
+	 * @return   bitboard of all pieces
+	 */
+	public long getAll(){
+		return all;
+	}
+
+	/**
+	 * Gets the side to move
+	 * @return   WHITE or BLACK
+	 */
+	public int getSide(){
+		return side;
+	}
+
+	/**
+	 * Sets the side to move
+	 * @param color   WHITE or BLACK
+	 */
+	public void setSide(int color){
+		if(color != side)
+			hash ^= Zobrist.side();
+		side = color;
+	}
+
+	/**
+	 * Gets the castling rights still held
+	 * @return   some combination of the castling rights bits
+	 */
+	public int getCastling(){
+		return castling;
+	}
+
+	/**
+	 * Sets the castling rights. They are only taken away by moves, so this is
+	 * for setting up a position.
+	 * @param rights   some combination of the castling rights bits
+	 */
+	public void setCastling(int rights){
+		hash ^= Zobrist.castling(castling) ^ Zobrist.castling(rights);
+		castling = rights;
+	}
+
+	/**
+	 * Gets the square a Pawn that just jumped two squares can be taken on
+	 * @return   square index, or NO_SQUARE
+	 */
+	public int getEpSquare(){
+		return epSquare;
+	}
+
+	/**
+	 * Sets the square a Pawn can be taken en passant on, for setting up a
+	 * position
+	 * @param sq   square the Pawn passed over, or NO_SQUARE
+	 */
+	public void setEpSquare(int sq){
+		if(epSquare != NO_SQUARE)
+			hash ^= Zobrist.enPassant(epSquare);
+		if(sq != NO_SQUARE)
+			hash ^= Zobrist.enPassant(sq);
+		epSquare = sq;
+	}
+
+	/**
+	 * Gets the number of moves made since the last capture or Pawn move
+	 * @return   halfmove clock
+	 */
+	public int getHalfmoveClock(){
+		return halfmove;
+	}
+
+	/**
+	 * Sets the halfmove clock, for setting up a position
+	 * @param count   moves made since the last capture or Pawn move
+	 */
+	public void setHalfmoveClock(int count){
+		halfmove = count;
+	}
+
+	/**
+	 * Counts how many times the current position has been seen before. Only
+	 * positions with the same side to move since the last capture or Pawn
+	 * move are looked at, and the one two plies back can't match since both
+	 * sides would have had to move back in one move each.
+	 * @return   number of earlier times the position came up
+	 */
+	public int repetitions(){
+		int count = 0;
+		int stop = Math.max(0, ply - halfmove);
+		for(int i = ply - 4; i >= stop; i -= 2){
+			if(hashStack[i] == hash)
+				count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Checks if the current position has come up before at all. Search
+	 * treats this as a draw, since whatever worked the first time can be
+	 * played again.
+	 * @return   true if the position is a repeat
+	 */
+	public boolean isRepetition(){
+		int stop = Math.max(0, ply - halfmove);
+		for(int i = ply - 4; i >= stop; i -= 2){
+			if(hashStack[i] == hash)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Checks if fifty moves by each side have gone by without a capture or
+	 * Pawn move
+	 * @return   true if either side may claim a draw
+	 */
+	public boolean isFiftyMoveDraw(){
+		return halfmove >= 100;
+	}
+
+	/**
+	 * Gets the middlegame piece-square score of the pieces on the board
+	 * @return   score in centipawns, from white's point of view
+	 */
+	public int getMidgameScore(){
+		return mgScore;
+	}
+
+	/**
+	 * Gets the endgame piece-square score of the pieces on the board
+	 * @return   score in centipawns, from white's point of view
+	 */
+	public int getEndgameScore(){
+		return egScore;
+	}
+
+	/**
+	 * Gets the game phase, which falls as pieces come off the board
+	 * @return   phase, PieceSquareTables.MAX_PHASE at the start
+	 */
+	public int getPhase(){
+		return phase;
+	}
+
+	/**
+	 * Gets the piece-square score blended by the game phase
+	 * @return   score in centipawns, from white's point of view
+	 */
+	public int getTaperedScore(){
+		return PieceSquareTables.taper(mgScore, egScore, phase);
+	}
+
+	/**
+	 * Gets the Zobrist hash of the position, which identifies it by its
+	 * pieces, side to move, castling rights and en passant square
+	 * @return   64 bit position hash
+	 */
+	public long getHash(){
+		return hash;
+	}
+
+	/**
+	 * Works the hash out from scratch instead of using the running value.
+	 * Slow, but handy for checking the running value is right.
+	 * @return   64 bit position hash
+	 */
+	public long computeHash(){
+		long h = side == BLACK ? Zobrist.side() : 0L;
+		h ^= Zobrist.castling(castling);
+		if(epSquare != NO_SQUARE)
+			h ^= Zobrist.enPassant(epSquare);
+		for(int code = 0; code < pieces.length; code++){
+			long b = pieces[code];
+			while(b != 0){
+				h ^= Zobrist.piece(code, Long.numberOfTrailingZeros(b));
+				b &= b - 1;
+			}
+		}
+		return h;
+	}
+
+	/**
+	 * Checks if any piece of a color attacks a square. Rather than asking
+	 * every enemy piece whether it can reach the square, this looks outward
+	 * from the square itself: a knight on any of the squares a knight could
+	 * jump to from here attacks it, and the same goes for kings and pawns.
+	 * For sliders, the rook and bishop lines through the square are looked up
+	 * against the real blockers and checked for a rook, bishop or queen at
+	 * their far ends. The cheap lookups are done first.
+	 * @param sq        square index
+	 * @param byColor   color of the attackers, WHITE or BLACK
+	 * @return          true if the square is attacked
+	 */
+	public boolean isAttacked(int sq, int byColor){
+		if((Attacks.pawn(byColor ^ 1, sq) & pieces[code(byColor, PAWN)]) != 0)
+			return true;
+		if((Attacks.knight(sq) & pieces[code(byColor, KNIGHT)]) != 0)
+			return true;
+		if((Attacks.king(sq) & pieces[code(byColor, KING)]) != 0)
+			return true;
+		long queens = pieces[code(byColor, QUEEN)];
+		if((Attacks.bishop(sq, all) & (pieces[code(byColor, BISHOP)] | queens)) != 0)
+			return true;
+		return (Attacks.rook(sq, all) & (pieces[code(byColor, ROOK)] | queens)) != 0;
+	}
+
+	/**
+	 * Finds every piece of a color that attacks a square, looking outward
+	 * from the square the same way isAttacked() does
+	 * @param sq        square index
+	 * @param byColor   color of the attackers, WHITE or BLACK
+	 * @param occ       occupancy to trace the lines against, usually getAll()
+	 * @return          word of the squares the attackers stand on
+	 */
+	public long attackersTo(int sq, int byColor, long occ){
+		long queens = pieces[code(byColor, QUEEN)];
+		return (Attacks.pawn(byColor ^ 1, sq) & pieces[code(byColor, PAWN)])
+			| (Attacks.knight(sq) & pieces[code(byColor, KNIGHT)])
+			| (Attacks.king(sq) & pieces[code(byColor, KING)])
+			| (Attacks.bishop(sq, occ) & (pieces[code(byColor, BISHOP)] | queens))
+			| (Attacks.rook(sq, occ) & (pieces[code(byColor, ROOK)] | queens));
+	}
+
+	/**
+	 * Gets the attack maps for this board. They are built the first time
+	 * this is called, and brought up to date with whatever has changed since
+	 * the last call every time after.
+	 * @return   attack and defend maps for both colors
+	 */
+	public AttackMap getAttackMap(){
+		if(attackMap == null)
+			attackMap = new AttackMap(this);
+		else if(attackChanges != 0)
+			attackMap.update(attackChanges);
+		attackChanges = 0L;
+		return attackMap;
+	}
+
+	/**
+	 * Checks if a color's King is attacked
+	 * @param color   WHITE or BLACK
+	 * @return        true if in check, false if not or if there is no King
+	 */
+	public boolean inCheck(int color){
+		long king = pieces[code(color, KING)];
+		if(king == 0)
+			return false;
+		return isAttacked(Long.numberOfTrailingZeros(king), color ^ 1);
+	}
+
+	/**
+	 * Prints a single bitboard to Console output, laid out the same way as
+	 * ChessBoard.printBoardState()
+	 * @param board   the bitboard to print
+	 */
+	public static void printBits(long board){
+		for(int y = 7; y >= 0; y--){
+			System.out.print(y + " ");
+			for(int x = 0; x < 8; x++)
+				System.out.print(((board >>> square(x, y)) & 1L) == 1L ? "1 " : ". ");
+			System.out.println();
+		}
+		System.out.println();
+	}
+
+
+	/*
+	 * Making and unmaking moves
+	 */
+
+	/**
+	 * Plays a packed move and passes the turn to the other side. The move is
+	 * trusted to come from MoveGenerator, so it is not checked for legality.
+	 * @param move   packed move to play
+	 */
+	public void makeMove(int move){
+		int from = Move.from(move);
+		int to = Move.to(move);
+		int flags = Move.flags(move);
+		int moved = pieceAt(from);
+		int color = colorOf(moved);
+		int capturedSq = flags == Move.EN_PASSANT ? enPassantVictim(to, color) : to;
+		int captured = pieceAt(capturedSq);
+		if(ply == moveStack.length)
+			growStacks();
+		moveStack[ply] = move;
+		movedStack[ply] = moved;
+		capturedStack[ply] = captured;
+		hashStack[ply] = hash;
+		castlingStack[ply] = castling;
+		epStack[ply] = epSquare;
+		halfmoveStack[ply] = halfmove;
+		ply++;
+
+		long h = hash ^ Zobrist.castling(castling) ^ Zobrist.side();
+		if(epSquare != NO_SQUARE)
+			h ^= Zobrist.enPassant(epSquare);
+		if(captured != EMPTY){
+			toggle(captured, capturedSq);
+			h ^= Zobrist.piece(captured, capturedSq);
+		}
+		int placed = flags < Move.PROMOTION ? moved : code(color, Move.promotionType(move));
+		toggle(moved, from);
+		toggle(placed, to);
+		h ^= Zobrist.piece(moved, from) ^ Zobrist.piece(placed, to);
+		long changed = bit(from) | bit(to) | bit(capturedSq);
+		if(flags == Move.KING_CASTLE || flags == Move.QUEEN_CASTLE){
+			int rook = code(color, ROOK);
+			int rookFrom = castleRookFrom(move);
+			int rookTo = castleRookTo(move);
+			toggle(rook, rookFrom);
+			toggle(rook, rookTo);
+			h ^= Zobrist.piece(rook, rookFrom) ^ Zobrist.piece(rook, rookTo);
+			changed |= bit(rookFrom) | bit(rookTo);
+		}
+
+		castling &= castlingMask[from] & castlingMask[to];
+		halfmove = captured != EMPTY || typeOf(moved) == PAWN ? 0 : halfmove + 1;
+		epSquare = NO_SQUARE;
+		if(flags == Move.DOUBLE_PUSH){
+			int passed = (from + to) >>> 1;
+			if((Attacks.pawn(color, passed) & pieces[code(color ^ 1, PAWN)]) != 0){
+				epSquare = passed;
+				h ^= Zobrist.enPassant(passed);
+			}
+		}
+		hash = h ^ Zobrist.castling(castling);
+		side = color ^ 1;
+		attackChanges |= changed;
+	}
+
+	/**
+	 * Takes back the last move played with makeMove(), giving the turn back
+	 * to the side that played it
+	 * @return   the packed move taken back, Move.NONE if there was none
+	 */
+	public int unmakeMove(){
+		if(ply == base)
+			return Move.NONE;
+		ply--;
+		int move = moveStack[ply];
+		int from = Move.from(move);
+		int to = Move.to(move);
+		int flags = Move.flags(move);
+		int moved = movedStack[ply];
+		int captured = capturedStack[ply];
+		int color = colorOf(moved);
+		int capturedSq = flags == Move.EN_PASSANT ? enPassantVictim(to, color) : to;
+
+		side = color;
+		toggle(flags < Move.PROMOTION ? moved : code(color, Move.promotionType(move)), to);
+		toggle(moved, from);
+		if(captured != EMPTY)
+			toggle(captured, capturedSq);
+		long changed = bit(from) | bit(to) | bit(capturedSq);
+		if(flags == Move.KING_CASTLE || flags == Move.QUEEN_CASTLE){
+			int rook = code(color, ROOK);
+			toggle(rook, castleRookTo(move));
+			toggle(rook, castleRookFrom(move));
+			changed |= bit(castleRookFrom(move)) | bit(castleRookTo(move));
+		}
+		hash = hashStack[ply];
+		castling = castlingStack[ply];
+		epSquare = epStack[ply];
+		halfmove = halfmoveStack[ply];
+		attackChanges |= changed;
+		return move;
+	}
+
+	/**
+	 * Passes the turn without moving, for null move pruning. The position
+	 * gets the other side to move and loses its en passant square, and the
+	 * halfmove clock starts again so nothing before the null move counts as
+	 * a repetition. Must be taken back with unmakeNullMove(), not
+	 * unmakeMove().
+	 */
+	public void makeNullMove(){
+		if(ply == moveStack.length)
+			growStacks();
+		moveStack[ply] = Move.NONE;
+		movedStack[ply] = EMPTY;
+		capturedStack[ply] = EMPTY;
+		hashStack[ply] = hash;
+		castlingStack[ply] = castling;
+		epStack[ply] = epSquare;
+		halfmoveStack[ply] = halfmove;
+		ply++;
+
+		if(epSquare != NO_SQUARE)
+			hash ^= Zobrist.enPassant(epSquare);
+		epSquare = NO_SQUARE;
+		halfmove = 0;
+		hash ^= Zobrist.side();
+		side ^= 1;
+	}
+
+	/**
+	 * Takes back a makeNullMove()
+	 */
+	public void unmakeNullMove(){
+		ply--;
+		side ^= 1;
+		hash = hashStack[ply];
+		epSquare = epStack[ply];
+		halfmove = halfmoveStack[ply];
+	}
+
+	/**
+	 * Checks if a color has anything besides Pawns and its King. Without it,
+	 * passing would often be the best move if it were allowed, which is when
+	 * null move pruning goes wrong.
+	 * @param color   WHITE or BLACK
+	 * @return        true if it has a Knight, Bishop, Rook or Queen
+	 */
+	public boolean hasPieces(int color){
+		return (occupied[color] & ~pieces[code(color, PAWN)] & ~pieces[code(color, KING)]) != 0;
+	}
+
+	/**
+	 * Gets the square the Rook starts on for a castling move. Castling King
+	 * side moves the King to x = 1 and the Rook from x = 0, Queen side moves
+	 * the King to x = 5 and the Rook from x = 7.
+	 * @param move   packed castling move
+	 * @return       square index
+	 */
+	public static int castleRookFrom(int move){
+		return Move.flags(move) == Move.KING_CASTLE ? Move.to(move) - 1 : Move.to(move) + 2;
+	}
+
+	/**
+	 * Gets the square the Rook ends up on for a castling move, which is the
+	 * one the King passed over
+	 * @param move   packed castling move
+	 * @return       square index
+	 */
+	public static int castleRookTo(int move){
+		return Move.flags(move) == Move.KING_CASTLE ? Move.to(move) + 1 : Move.to(move) - 1;
+	}
+
+	/**
+	 * Gets the square of the Pawn taken by an en passant capture, which is
+	 * just behind the square the capturing Pawn lands on
+	 * @param to      square the capturing Pawn lands on
+	 * @param color   color of the capturing Pawn
+	 * @return        square index
+	 */
+	public static int enPassantVictim(int to, int color){
+		return color == WHITE ? to - 8 : to + 8;
+	}
+
+	/**
+	 * Gets the move that led to this position
+	 * @return   packed move, Move.NONE if there is none to take back
+	 */
+	public int getLastMove(){
+		return ply > base ? moveStack[ply - 1] : Move.NONE;
+	}
+
+	/**
+	 * Gets how many moves can currently be taken back
+	 * @return   number of moves on the undo stack
+	 */
+	public int getPly(){
+		return ply - base;
+	}
+
+	/**
+	 * Flips a piece's bit on a square in its own word and in the occupancy
+	 * words, and writes the square's mailbox entry and the piece-square sums
+	 * to match. Used both to add and to remove.
+	 */
+	private void toggle(int code, int sq){
+		long b = bit(sq);
+		pieces[code] ^= b;
+		occupied[code & 1] ^= b;
+		all ^= b;
+		if((pieces[code] & b) != 0){
+			mailbox[sq] = (byte)code;
+			mgScore += PieceSquareTables.mg(code, sq);
+			egScore += PieceSquareTables.eg(code, sq);
+			phase += PieceSquareTables.phase(code);
+		}
+		else{
+			mailbox[sq] = EMPTY;
+			mgScore -= PieceSquareTables.mg(code, sq);
+			egScore -= PieceSquareTables.eg(code, sq);
+			phase -= PieceSquareTables.phase(code);
+		}
+	}
+
+	/**
+	 * Doubles the undo stacks. Only reached in very long games.
+	 */
+	private void growStacks(){
+		moveStack = Arrays.copyOf(moveStack, moveStack.length * 2);
+		movedStack = Arrays.copyOf(movedStack, movedStack.length * 2);
+		capturedStack = Arrays.copyOf(capturedStack, capturedStack.length * 2);
+		hashStack = Arrays.copyOf(hashStack, hashStack.length * 2);
+		castlingStack = Arrays.copyOf(castlingStack, castlingStack.length * 2);
+		epStack = Arrays.copyOf(epStack, epStack.length * 2);
+		halfmoveStack = Arrays.copyOf(halfmoveStack, halfmoveStack.length * 2);
+	}
+}
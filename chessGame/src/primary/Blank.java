@@ -1,16 +1,47 @@
 package primary;
 import primary.Position;
 
+/**
+ * An empty square. Blanks never move, so one shared Blank per square (see
+ * at()) is enough for every board, and setPosition() is ignored.
+ */
 public class Blank extends Piece {
 
+	private static final Blank SHARED[] = new Blank[64];
+
+	static {
+		for(int sq = 0; sq < 64; sq++)
+			SHARED[sq] = new Blank("Blank", BitBoard.xOf(sq), BitBoard.yOf(sq));
+	}
+
 	public Blank(String color, int xPos, int yPos){
 		super(color, xPos, yPos);
-		color = "Blank";
+		this.color = "Blank";
 	}
 
 	public Blank(String color, Position position){
 		super(color, position);
-		color = "Blank";
+		this.color = "Blank";
+	}
+
+	/**
+	 * Gets the shared Blank for a square
+	 * @param x   x coordinate
+	 * @param y   y coordinate
+	 * @return    the Blank standing on that square
+	 */
+	public static Blank at(int x, int y){
+		return SHARED[BitBoard.square(x, y)];
+	}
+
+	public int getType(){
+		return BitBoard.EMPTY;
+	}
+
+	public void setPosition(Position pos){
+	}
+
+	public void setPosition(int x, int y){
 	}
 
 	public String symbol(){
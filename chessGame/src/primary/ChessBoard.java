@@ -1,43 +1,165 @@
 package primary;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * A class representing a chess board in which individual pieces will be placed
  * and manipulated upon. Its primary method of manipulation and containment is
  * a matrix array containing individual Piece classes, which can be moved around
- * with either human readable or machine friendly commands.
+ * with either human readable or machine friendly commands. Every change to the
+ * matrix is mirrored into a BitBoard, which the faster queries are answered
+ * from. Rule checks work on BitBoard piece codes rather than color Strings,
+ * and empty squares all hold the shared Blank for that square (see
+ * Blank.at()).
+ * <br>
+ * A copy of a board (see the copy constructor) only copies the BitBoard.
+ * Its matrix and piece lists are filled in from the BitBoard the first time
+ * anything asks for a Piece, so a copy that is only searched never makes
+ * any Piece objects, and its moves only touch the BitBoard.
  *
  * @author Ethan Arns
  */
 public class ChessBoard {
 
 	protected Piece boardMatrix[][];
+	protected BitBoard bits;
 	protected String currentTurn;
 	protected boolean verbose;
 
+	//pieces (or blanks) taken off the matrix by makeMove, and the pieces
+	//that moved, for unmakeMove. A promoted Pawn is only found in the latter
+	protected Piece undoCaptured[];
+	protected Piece undoMoved[];
+	//scratch space for findMove()
+	private int findBuffer[];
+
+	//pieces of each color, kept up to date as pieces are placed and moved
 	protected ArrayList<Piece> blackPieces;
 	protected ArrayList<Piece> whitePieces;
+	//square of each piece list entry, and each square's index in its list
+	private int listSquares[][];
+	private int listIndex[];
+	//false while the matrix and lists have not been made from the BitBoard
+	private boolean piecesReady;
+	//read only views handed out by the getters
+	private List<Piece> whiteView;
+	private List<Piece> blackView;
+	private List<Piece> allView;
 
 	/**
 	 * Chess board class constructor. Sets current turn to white and initiates
 	 * the two other variables blank
 	 */
 	public ChessBoard(){
-		boardMatrix= new Piece[8][8];
+		this(new BitBoard(), 1024);
 		for(int i = 0; i < 8; i++){
 			for(int j = 0; j < 8; j++){
-				boardMatrix[i][j] = new Blank("Blank", i, j);
+				boardMatrix[i][j] = Blank.at(i, j);
 			}
 		}
+		piecesReady = true;
+	}
+
+
+	/**
+	 * Copy constructor. The new board gets the same position, turn, castling
+	 * rights and en passant square, and shares nothing with the old one, so
+	 * it can be handed to another thread. Only the BitBoard's flat arrays are
+	 * copied; the copy makes its own Piece objects the first time they are
+	 * asked for. Moves made on the other board can't be taken back on the
+	 * copy.
+	 *
+	 * @param other   board to copy
+	 */
+	public ChessBoard(ChessBoard other){
+		this(new BitBoard(other.bits), 64);
+		currentTurn = colorName(bits.getSide());
+		verbose = other.verbose;
+	}
+
+
+	/**
+	 * Sets up everything but the contents of the matrix
+	 */
+	private ChessBoard(BitBoard bits, int undoSize){
+		boardMatrix = new Piece[8][8];
+		this.bits = bits;
+		undoCaptured = new Piece[undoSize];
+		undoMoved = new Piece[undoSize];
+		findBuffer = new int[MoveGenerator.MAX_MOVES];
 		currentTurn = "White";
 		blackPieces = new ArrayList<Piece>();
 		whitePieces = new ArrayList<Piece>();
+		listSquares = new int[2][64];
+		listIndex = new int[64];
+		piecesReady = false;
+		whiteView = listView(BitBoard.WHITE);
+		blackView = listView(BitBoard.BLACK);
+		allView = new AbstractList<Piece>() {
+			public Piece get(int index){
+				ensurePieces();
+				if(index < whitePieces.size())
+					return whitePieces.get(index);
+				return blackPieces.get(index - whitePieces.size());
+			}
+
+			public int size(){
+				ensurePieces();
+				return whitePieces.size() + blackPieces.size();
+			}
+		};
 
 		verbose = false;
 	}
 
 
+	/**
+	 * Makes a read only view of one color's piece list, which fills in the
+	 * pieces first if they haven't been made yet
+	 */
+	private List<Piece> listView(final int color){
+		return new AbstractList<Piece>() {
+			public Piece get(int index){
+				ensurePieces();
+				return pieceList(color).get(index);
+			}
+
+			public int size(){
+				ensurePieces();
+				return pieceList(color).size();
+			}
+		};
+	}
+
+
+	/**
+	 * Makes the matrix and piece lists from the BitBoard if they haven't
+	 * been made yet. Every method that hands out or writes Piece objects
+	 * calls this first.
+	 */
+	protected void ensurePieces(){
+		if(piecesReady)
+			return;
+		piecesReady = true;
+		whitePieces.clear();
+		blackPieces.clear();
+		for(int sq = 0; sq < 64; sq++){
+			int x = BitBoard.xOf(sq);
+			int y = BitBoard.yOf(sq);
+			int code = bits.pieceAt(sq);
+			boardMatrix[x][y] = createPiece(code, x, y);
+			if(code != BitBoard.EMPTY)
+				listAdd(BitBoard.colorOf(code), sq, boardMatrix[x][y]);
+		}
+	}
+
+
 	/**
 	 * Sets debug mode. If on, System will print messages showing moves, errors,
 	 * and board states.
@@ -78,17 +200,60 @@ public class ChessBoard {
 	public void changeTurn(){
 		if(currentTurn.equalsIgnoreCase("White")){
 			currentTurn = "Black";
+			bits.setSide(BitBoard.BLACK);
 			if(verbose)
 				System.out.println("It is now Black's turn.");
 		}
 		else{
 			currentTurn = "White";
+			bits.setSide(BitBoard.WHITE);
 			if(verbose)
 				System.out.println("It is now White's turn.");
 		}
 	}
 
 
+	/**
+	 * Gets the bitboard mirror of this board. It should be treated as read
+	 * only, since changing it directly will leave the piece matrix behind.
+	 * @return   the BitBoard kept in step with the piece matrix
+	 */
+	public BitBoard getBitBoard(){
+		return bits;
+	}
+
+
+	/**
+	 * Checks if the current position has now come up three times, counting
+	 * every move made with makeMove() or move() since the board was set up
+	 * @return   true if a draw by threefold repetition can be claimed
+	 */
+	public boolean isThreefoldRepetition(){
+		return bits.repetitions() >= 2;
+	}
+
+
+	/**
+	 * Checks if fifty moves by each side have been made without a capture
+	 * or Pawn move
+	 * @return   true if a draw by the fifty-move rule can be claimed
+	 */
+	public boolean isFiftyMoveDraw(){
+		return bits.isFiftyMoveDraw();
+	}
+
+
+	/**
+	 * Gets the Zobrist hash of the current position. Two boards with the same
+	 * pieces on the same squares and the same side to move share a hash, so
+	 * this can be used as a key for remembering positions.
+	 * @return   64 bit position hash
+	 */
+	public long getHash(){
+		return bits.getHash();
+	}
+
+
 	/**
 	 * Retrieves piece at coordinate location
 	 * @param x       the x coordinate
@@ -101,6 +266,7 @@ public class ChessBoard {
 				System.out.println("Invalid position in getPiece(x,y)");
 			return null;
 		}
+		ensurePieces();
 		return x > 7 || x < 0 || y > 7 || y < 0 ? null : boardMatrix[x][y];
 	}
 
@@ -116,6 +282,7 @@ public class ChessBoard {
 				System.out.println("Invalid position in getPiece(pos");
 			return null;
 		}
+		ensurePieces();
 		return pos.getXpos() > 7 || pos.getXpos() < 0 || pos.getYpos() > 7 || pos.getYpos() < 0 ? null : boardMatrix[pos.getXpos()][pos.getYpos()];
 	}
 
@@ -174,7 +341,7 @@ public class ChessBoard {
 				System.out.println("Invalid piece place!");
 			return;
 		}
-		boardMatrix[piece.getXpos()][piece.getYpos()] = piece;
+		setSquare(piece.getXpos(), piece.getYpos(), piece);
 	}
 
 
@@ -190,7 +357,7 @@ public class ChessBoard {
 			return;
 		}
 		piece.setPosition(pos);
-		boardMatrix[piece.getXpos()][piece.getYpos()] = piece;
+		setSquare(pos.getXpos(), pos.getYpos(), piece);
 	}
 
 
@@ -207,20 +374,270 @@ public class ChessBoard {
 			return;
 		}
 		piece.setPosition(x, y);
-		boardMatrix[piece.getXpos()][piece.getYpos()] = piece;
+		setSquare(x, y, piece);
 	}
 
 
 	/**
-	 * Places all pieces in proper starting position
+	 * Puts a piece into the matrix and keeps the BitBoard and the piece lists
+	 * in step with it. Whatever was on the square before is dropped from the
+	 * lists. Any Blank is swapped for the square's shared one.
+	 * @param x       the x coordinate
+	 * @param y       the y coordinate
+	 * @param piece   the piece, or a Blank
 	 */
-	public void resetBoard(){
+	private void setSquare(int x, int y, Piece piece){
+		ensurePieces();
+		if(piece instanceof Blank)
+			piece = Blank.at(x, y);
+		int sq = BitBoard.square(x, y);
+		long b = BitBoard.bit(sq);
+		if((bits.getOccupied(BitBoard.WHITE) & b) != 0)
+			listRemove(BitBoard.WHITE, sq);
+		else if((bits.getOccupied(BitBoard.BLACK) & b) != 0)
+			listRemove(BitBoard.BLACK, sq);
+		int code = pieceCode(piece);
+		boardMatrix[x][y] = piece;
+		bits.set(sq, code);
+		if(code != BitBoard.EMPTY)
+			listAdd(BitBoard.colorOf(code), sq, piece);
+	}
+
+
+	/**
+	 * Translates a Piece object into the BitBoard piece code for it
+	 * @param p   piece to translate
+	 * @return    BitBoard piece code, BitBoard.EMPTY for blanks
+	 */
+	protected static int pieceCode(Piece p){
+		return p == null ? BitBoard.EMPTY : p.getCode();
+	}
+
+
+	/**
+	 * Creates a new Piece object for a BitBoard piece code
+	 * @param code   BitBoard piece code
+	 * @param x      x coordinate of the new piece
+	 * @param y      y coordinate of the new piece
+	 * @return       the new piece, the square's shared Blank for BitBoard.EMPTY
+	 */
+	protected static Piece createPiece(int code, int x, int y){
+		if(code == BitBoard.EMPTY)
+			return Blank.at(x, y);
+		String color = colorName(BitBoard.colorOf(code));
+		switch(BitBoard.typeOf(code)){
+		case BitBoard.PAWN:
+			return new Pawn(color, x, y);
+		case BitBoard.KNIGHT:
+			return new Knight(color, x, y);
+		case BitBoard.BISHOP:
+			return new Bishop(color, x, y);
+		case BitBoard.ROOK:
+			return new Rook(color, x, y);
+		case BitBoard.QUEEN:
+			return new Queen(color, x, y);
+		default:
+			return new King(color, x, y);
+		}
+	}
+
+
+	/**
+	 * Creates a Piece from the symbol it prints as on the ASCII board, as used
+	 * by saved games
+	 * @param symbol   piece symbol, upper case for white and lower for black
+	 * @param x        x coordinate of the new piece
+	 * @param y        y coordinate of the new piece
+	 * @return         the new piece, a Blank for anything unrecognized
+	 */
+	public static Piece pieceFromSymbol(char symbol, int x, int y){
+		int type = "pnbrqk".indexOf(Character.toLowerCase(symbol));
+		if(type < 0)
+			return createPiece(BitBoard.EMPTY, x, y);
+		int color = Character.isUpperCase(symbol) ? BitBoard.WHITE : BitBoard.BLACK;
+		return createPiece(BitBoard.code(color, type), x, y);
+	}
+
+
+	/**
+	 * Writes the pieces in the saved game format: 8 lines, one per x
+	 * coordinate, each holding the symbols for y = 0 to 7
+	 * @param writer        where to write the lines
+	 * @throws IOException  if the writer fails
+	 */
+	public void writePieces(BufferedWriter writer) throws IOException{
+		for(int i = 0; i < 8; i++){
+			for(int j = 0; j < 8; j++){
+				writer.write(getPiece(i, j).symbol());
+			}
+			writer.newLine();
+		}
+	}
+
+
+	/**
+	 * Reads pieces written by writePieces() and places them on the board.
+	 * Squares not mentioned are left as they are. Saves don't record
+	 * castling rights, so every castle whose King and Rook are still on
+	 * their starting squares is allowed.
+	 * @param reader        where to read the lines from
+	 * @return              true if all 8 lines were good, false if not
+	 * @throws IOException  if the reader fails
+	 */
+	public boolean readPieces(BufferedReader reader) throws IOException{
+		for(int i = 0; i < 8; i++){
+			String pieceLine = reader.readLine();
+			//check for validity
+			if(pieceLine == null || pieceLine.length() != 8){
+				if(verbose)
+					System.out.println("Bad piece line in save: " + pieceLine);
+				return false;
+			}
+			for(int j = 7; j >= 0; j--){
+				placePiece(pieceFromSymbol(pieceLine.charAt(j), i, j));
+			}
+		}
+		bits.setCastling(homeCastling());
+		return true;
+	}
+
+
+	/**
+	 * Works out which castles are possible from where the Kings and Rooks
+	 * stand, for positions that don't say
+	 * @return   castling rights bits for every King and Rook still at home
+	 */
+	protected int homeCastling(){
+		int rights = 0;
+		int whiteRook = BitBoard.code(BitBoard.WHITE, BitBoard.ROOK);
+		int blackRook = BitBoard.code(BitBoard.BLACK, BitBoard.ROOK);
+		if(bits.pieceAt(BitBoard.square(3, 0)) == BitBoard.code(BitBoard.WHITE, BitBoard.KING)){
+			if(bits.pieceAt(BitBoard.square(0, 0)) == whiteRook)
+				rights |= BitBoard.WHITE_KINGSIDE;
+			if(bits.pieceAt(BitBoard.square(7, 0)) == whiteRook)
+				rights |= BitBoard.WHITE_QUEENSIDE;
+		}
+		if(bits.pieceAt(BitBoard.square(3, 7)) == BitBoard.code(BitBoard.BLACK, BitBoard.KING)){
+			if(bits.pieceAt(BitBoard.square(0, 7)) == blackRook)
+				rights |= BitBoard.BLACK_KINGSIDE;
+			if(bits.pieceAt(BitBoard.square(7, 7)) == blackRook)
+				rights |= BitBoard.BLACK_QUEENSIDE;
+		}
+		return rights;
+	}
+
+
+	/**
+	 * Translates a BitBoard color into the color names used by Piece
+	 * @param color   BitBoard.WHITE or BitBoard.BLACK
+	 * @return        "White" or "Black"
+	 */
+	protected static String colorName(int color){
+		return color == BitBoard.WHITE ? "White" : "Black";
+	}
+
+
+	/**
+	 * Empties every square and forgets any moves that could be taken back.
+	 * The turn is left alone.
+	 */
+	public void clearBoard(){
+		bits.clear();
+		whitePieces.clear();
+		blackPieces.clear();
+		//nothing left worth making pieces for
+		piecesReady = true;
 		for(int i = 0; i < 8; i++){
 			for(int j = 0; j < 8; j++){
 				boardMatrix[i][j] = null;
-				placePiece(new Blank("Blank", i, j));
+				placePiece(Blank.at(i, j));
 			}
 		}
+	}
+
+
+	/**
+	 * Sets the board up from a position in Forsyth-Edwards Notation, such as
+	 * "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1". Files run
+	 * the opposite way to x on this board, so the a-file is x = 7 and the
+	 * h-file is x = 0, which is what puts the FEN starting position in the
+	 * same places as resetBoard(). Missing castling and en passant fields
+	 * are read as "-", and a missing halfmove clock as 0.
+	 *
+	 * @param fen   the position to load
+	 * @return      true if loaded, false if the FEN could not be read
+	 */
+	public boolean loadFen(String fen){
+		String fields[] = fen.trim().split("\\s+");
+		String rows[] = fields[0].split("/");
+		if(rows.length != 8){
+			if(verbose)
+				System.out.println("Bad FEN, expected 8 rows: " + fen);
+			return false;
+		}
+		clearBoard();
+		for(int r = 0; r < 8; r++){
+			int y = 7 - r;
+			int file = 0;
+			for(int i = 0; i < rows[r].length(); i++){
+				char c = rows[r].charAt(i);
+				if(Character.isDigit(c)){
+					file += c - '0';
+					continue;
+				}
+				int type = "pnbrqk".indexOf(Character.toLowerCase(c));
+				if(type < 0 || file > 7){
+					if(verbose)
+						System.out.println("Bad FEN, can't place '" + c + "': " + fen);
+					clearBoard();
+					return false;
+				}
+				int color = Character.isUpperCase(c) ? BitBoard.WHITE : BitBoard.BLACK;
+				placePiece(createPiece(BitBoard.code(color, type), 7 - file, y));
+				file++;
+			}
+		}
+		int side = fields.length > 1 && fields[1].equalsIgnoreCase("b") ? BitBoard.BLACK : BitBoard.WHITE;
+		currentTurn = colorName(side);
+		bits.setSide(side);
+		int rights = 0;
+		if(fields.length > 2){
+			String castling = fields[2];
+			if(castling.indexOf('K') >= 0)
+				rights |= BitBoard.WHITE_KINGSIDE;
+			if(castling.indexOf('Q') >= 0)
+				rights |= BitBoard.WHITE_QUEENSIDE;
+			if(castling.indexOf('k') >= 0)
+				rights |= BitBoard.BLACK_KINGSIDE;
+			if(castling.indexOf('q') >= 0)
+				rights |= BitBoard.BLACK_QUEENSIDE;
+		}
+		//only keep rights the pieces can actually use
+		bits.setCastling(rights & homeCastling());
+		if(fields.length > 3 && fields[3].length() == 2){
+			int x = 7 - (fields[3].charAt(0) - 'a');
+			int y = fields[3].charAt(1) - '1';
+			//like makeMove(), only keep it if a Pawn could take there
+			if(isOnBoard(x, y) && (Attacks.pawn(side ^ 1, BitBoard.square(x, y)) & bits.getPieces(side, BitBoard.PAWN)) != 0)
+				bits.setEpSquare(BitBoard.square(x, y));
+		}
+		if(fields.length > 4){
+			try {
+				bits.setHalfmoveClock(Math.max(0, Integer.parseInt(fields[4])));
+			} catch (NumberFormatException e) {
+				if(verbose)
+					System.out.println("Bad halfmove clock in FEN, using 0: " + fields[4]);
+			}
+		}
+		return true;
+	}
+
+
+	/**
+	 * Places all pieces in proper starting position
+	 */
+	public void resetBoard(){
+		clearBoard();
 		for(int i = 0; i < 8; i++)
 			placePiece(new Pawn("White", i, 1));
 		for(int j = 0; j < 8; j++)
@@ -246,8 +663,7 @@ public class ChessBoard {
 
 		placePiece( new King("Black",  3,7) );
 		placePiece( new Queen("Black", 4,7) );
-
-		refreshPieceList();
+		bits.setCastling(BitBoard.ALL_CASTLING);
 	}
 
 
@@ -301,6 +717,9 @@ public class ChessBoard {
 	/**
 	 * Moves a piece by advancing it according to the offset specified by x and
 	 * y parameters. Also determines capture. Returns true if successful.
+	 * Castling is asked for by moving the King two squares, and a Pawn
+	 * reaching the last row becomes a Queen. The move can be taken back with
+	 * unmakeMove(), but unlike makeMove() the turn is not passed on.
 	 *
 	 * @param p  the piece selected to be moved
 	 * @param x  how far left or right to move
@@ -318,17 +737,19 @@ public class ChessBoard {
 				System.out.println("Bad move! You cannot move a blank space.");
 			return false;
 		}
-		//set old position (for blank placement purposes
-		Position oldPos = new Position(p.getXpos(), p.getYpos());
+		//remember old position (for blank placement purposes)
+		int oldX = p.getXpos();
+		int oldY = p.getYpos();
 		//new position, using x and y to be relative
 		Piece newPiece = getPieceRelative( p.getPosition(), x, y);
-		if(oldPos == null || newPiece == null){
+		if(newPiece == null){
 			if(verbose)
 				System.out.println("Invalid creation of pieces during move()");
 			return false;
 		}
 		//Is it the same color?
-		if(newPiece.getColor().equalsIgnoreCase(p.getColor())){
+		int code = pieceCode(p);
+		if((bits.getOccupied(BitBoard.colorOf(code)) & BitBoard.bit(BitBoard.square(newPiece.getXpos(), newPiece.getYpos()))) != 0){
 			if(verbose)
 				System.out.println("Bad move! Can't land on same color.");
 			return false;
@@ -346,11 +767,18 @@ public class ChessBoard {
 			return false;
 		}
 
-		//Everything checks out, so set the piece's position anew
-		p.setPosition(newPiece.getXpos(), newPiece.getYpos());
-		placePiece(p);//place it according to the new position
-		//and set the old position to a Blank place
-		placePiece(new Blank("Blank",oldPos.getXpos(), oldPos.getYpos()));
+		//Everything checks out, so play it as the generator would, which
+		//takes care of castling, en passant and promotion
+		int m = findMove(BitBoard.square(oldX, oldY), BitBoard.square(newPiece.getXpos(), newPiece.getYpos()));
+		if(m == Move.NONE){
+			if(verbose)
+				System.out.println("Bad move! Illegal move for " + p.getClass().getSimpleName() + ".");
+			return false;
+		}
+		makeMove(m);
+		//move() leaves passing the turn to the caller
+		bits.setSide(BitBoard.colorOf(code));
+		currentTurn = colorName(BitBoard.colorOf(code));
 		if(verbose)
 			printBoardState();
 		else{
@@ -380,6 +808,148 @@ public class ChessBoard {
 	}
 
 
+	/**
+	 * Plays a packed move (see Move) and passes the turn to the other side.
+	 * Unlike move(), the move is not checked at all, so it should come from
+	 * MoveGenerator. Nothing is allocated, and the move can be taken back
+	 * with unmakeMove().
+	 *
+	 * @param m   packed move to play
+	 */
+	public void makeMove(int m){
+		int from = Move.from(m);
+		int to = Move.to(m);
+		int flags = Move.flags(m);
+		int ply = bits.getPly();
+		//a null move in the search (see ChessBoard_ai) moves the ply on
+		//without coming through here, so it can already be past the end
+		if(ply >= undoCaptured.length){
+			int size = Math.max(undoCaptured.length * 2, ply + 1);
+			undoCaptured = Arrays.copyOf(undoCaptured, size);
+			undoMoved = Arrays.copyOf(undoMoved, size);
+		}
+		if(!piecesReady){
+			//no pieces to keep in step, and nothing to put back on unmake
+			undoMoved[ply] = null;
+			undoCaptured[ply] = null;
+			bits.makeMove(m);
+			currentTurn = colorName(bits.getSide());
+			return;
+		}
+		Piece p = boardMatrix[BitBoard.xOf(from)][BitBoard.yOf(from)];
+		int color = BitBoard.colorOf(bits.pieceAt(from));
+		int capturedSq = flags == Move.EN_PASSANT ? BitBoard.enPassantVictim(to, color) : to;
+		undoCaptured[ply] = boardMatrix[BitBoard.xOf(capturedSq)][BitBoard.yOf(capturedSq)];
+		undoMoved[ply] = p;
+		if((bits.getOccupied(color ^ 1) & BitBoard.bit(capturedSq)) != 0)
+			listRemove(color ^ 1, capturedSq);
+		if(flags >= Move.PROMOTION){
+			listRemove(color, from);
+			p = createPiece(BitBoard.code(color, Move.promotionType(m)), BitBoard.xOf(to), BitBoard.yOf(to));
+			listAdd(color, to, p);
+		}
+		else
+			listMove(color, from, to);
+		if(flags == Move.KING_CASTLE || flags == Move.QUEEN_CASTLE)
+			shiftPiece(color, BitBoard.castleRookFrom(m), BitBoard.castleRookTo(m));
+		bits.makeMove(m);
+
+		p.setPosition(BitBoard.xOf(to), BitBoard.yOf(to));
+		boardMatrix[BitBoard.xOf(from)][BitBoard.yOf(from)] = Blank.at(BitBoard.xOf(from), BitBoard.yOf(from));
+		boardMatrix[BitBoard.xOf(capturedSq)][BitBoard.yOf(capturedSq)] = Blank.at(BitBoard.xOf(capturedSq), BitBoard.yOf(capturedSq));
+		boardMatrix[BitBoard.xOf(to)][BitBoard.yOf(to)] = p;
+		currentTurn = colorName(bits.getSide());
+	}
+
+
+	/**
+	 * Takes back the last move played with makeMove(), putting back anything
+	 * it captured and handing the turn back.
+	 *
+	 * @return   true if a move was taken back, false if there was none
+	 */
+	public boolean unmakeMove(){
+		int m = bits.unmakeMove();
+		if(m == Move.NONE)
+			return false;
+		int from = Move.from(m);
+		int to = Move.to(m);
+		int flags = Move.flags(m);
+		int ply = bits.getPly();
+		Piece p = undoMoved[ply];
+		if(p == null || !piecesReady){
+			//played before the pieces were made, or they have been dropped
+			//since, so they are made again when next needed
+			undoMoved[ply] = null;
+			undoCaptured[ply] = null;
+			piecesReady = false;
+			currentTurn = colorName(bits.getSide());
+			return true;
+		}
+		Piece captured = undoCaptured[ply];
+		undoMoved[ply] = null;
+		undoCaptured[ply] = null;
+		int color = bits.getSide();
+		int capturedSq = flags == Move.EN_PASSANT ? BitBoard.enPassantVictim(to, color) : to;
+		if(flags >= Move.PROMOTION){
+			listRemove(color, to);
+			listAdd(color, from, p);
+		}
+		else
+			listMove(color, to, from);
+		if(flags == Move.KING_CASTLE || flags == Move.QUEEN_CASTLE)
+			shiftPiece(color, BitBoard.castleRookTo(m), BitBoard.castleRookFrom(m));
+		if(!(captured instanceof Blank))
+			listAdd(color ^ 1, capturedSq, captured);
+
+		p.setPosition(BitBoard.xOf(from), BitBoard.yOf(from));
+		boardMatrix[BitBoard.xOf(from)][BitBoard.yOf(from)] = p;
+		boardMatrix[BitBoard.xOf(to)][BitBoard.yOf(to)] = Blank.at(BitBoard.xOf(to), BitBoard.yOf(to));
+		boardMatrix[BitBoard.xOf(capturedSq)][BitBoard.yOf(capturedSq)] = captured;
+		currentTurn = colorName(bits.getSide());
+		return true;
+	}
+
+
+	/**
+	 * Moves the Rook's half of a castle in the matrix and the piece lists.
+	 * The bitboards are left to BitBoard.makeMove().
+	 */
+	private void shiftPiece(int color, int from, int to){
+		Piece rook = boardMatrix[BitBoard.xOf(from)][BitBoard.yOf(from)];
+		listMove(color, from, to);
+		rook.setPosition(BitBoard.xOf(to), BitBoard.yOf(to));
+		boardMatrix[BitBoard.xOf(to)][BitBoard.yOf(to)] = rook;
+		boardMatrix[BitBoard.xOf(from)][BitBoard.yOf(from)] = Blank.at(BitBoard.xOf(from), BitBoard.yOf(from));
+	}
+
+
+	/**
+	 * Finds the packed move for a piece going from one square to another,
+	 * with the flags MoveGenerator would give it, whichever side is to move.
+	 * A Pawn reaching the last row is made a Queen.
+	 *
+	 * @param from   square index moved from
+	 * @param to     square index moved to
+	 * @return       the pseudo-legal packed move, Move.NONE if there is none
+	 */
+	protected int findMove(int from, int to){
+		int code = bits.pieceAt(from);
+		if(code == BitBoard.EMPTY)
+			return Move.NONE;
+		int side = bits.getSide();
+		bits.setSide(BitBoard.colorOf(code));
+		int count = MoveGenerator.generate(bits, findBuffer);
+		bits.setSide(side);
+		//promotions are generated Queen first, so the first match is the one
+		for(int i = 0; i < count; i++){
+			if(Move.from(findBuffer[i]) == from && Move.to(findBuffer[i]) == to)
+				return findBuffer[i];
+		}
+		return Move.NONE;
+	}
+
+
 	/**
 	 * A small method that finds what type of piece is being checked for
 	 * movement, then assigns and hands off the correct method to them
@@ -410,224 +980,6 @@ public class ChessBoard {
 	}
 
 
-	/**
-	 * Returns farthest acceptable placement away from the set position
-	 * straight up, left, right, or downwards ('u','l','r','d')
-	 * @param x           x position of the checked position
-	 * @param y           y position of the checked position
-	 * @param dir         character representing up, down, left, or right
-	 * @param initPiece   initial piece being checked, doesn't change, just used
-	 * @param newPos      the new Position
-	 * @return            the position of either end of check or right place
-	 */
-	protected Position straightRecursive(int x, int y, char dir, Piece initPiece, Position newPos){
-		if(dir == 'u'){
-			//If the place just checked isn't a blank space...
-			if( !isOnBoard(x, y)){
-				return getPiece(x,y-1).getPosition();
-			}
-			else if(newPos.getXpos() == x && newPos.getYpos() == y){
-				//right space found!
-				return getPiece(x,y).getPosition();
-			}
-			else if(!(getPiece(x, y) instanceof Blank)){
-				if(!getPiece(x,y).getColor().equalsIgnoreCase(initPiece.getColor())){
-					//get the current piece, its an enemy!
-					return getPiece(x,y).getPosition();
-				}
-				else{
-					//Likely same color, return one before
-					return getPiece(x,y-1).getPosition();
-				}
-			}
-			else{//... it'll shoot up through the recursiveness stack
-				return straightRecursive(x,y+1,'u',initPiece, newPos);//or just do it again 1 higher
-			}
-		}
-
-		if(dir == 'd'){
-			//If the place just checked isn't a blank space...
-			if( !isOnBoard(x, y)){
-				//return one before it
-				return getPiece(x,y+1).getPosition();
-			}
-			else if(newPos.getXpos() == x && newPos.getYpos() == y){
-				//found good position!
-				return getPiece(x,y).getPosition();
-			}
-			else if(!(getPiece(x, y) instanceof Blank)){
-				if(!getPiece(x,y).getColor().equalsIgnoreCase(initPiece.getColor())){
-					//get the current piece, its an enemy!
-					return getPiece(x,y).getPosition();
-				}
-				else{
-					//Likely same color, return one before
-					return getPiece(x,y+1).getPosition();
-				}
-			}
-			else{//... it'll shoot up through the recursiveness stack
-				return straightRecursive(x,y-1,'d',initPiece, newPos);//or just do it again 1 higher
-			}
-		}
-
-		if(dir == 'l'){
-			//If the place just checked isn't a blank space...
-			if( !isOnBoard(x, y)){
-				return getPiece(x+1,y).getPosition();
-			}
-			else if(newPos.getXpos() == x && newPos.getYpos() == y){
-				return getPiece(x,y).getPosition();
-			}
-			else if(!(getPiece(x, y) instanceof Blank)){
-				if(!getPiece(x,y).getColor().equalsIgnoreCase(initPiece.getColor())){
-					//get the current piece, its an enemy!
-					return getPiece(x,y).getPosition();
-				}
-				else{
-					//Likely same color, return one before
-					return getPiece(x+1,y).getPosition();
-				}
-			}
-			else{//... it'll shoot up through the recursiveness stack
-				return straightRecursive(x-1,y,'l',initPiece, newPos);//or just do it again 1 higher
-			}
-		}
-
-		if(dir == 'r'){
-			//If the place just checked isn't a blank space...
-			if( !isOnBoard(x, y)){
-				return getPiece(x-1,y).getPosition();
-			}
-			else if(newPos.getXpos() == x && newPos.getYpos() == y){
-				return getPiece(x,y).getPosition();
-			}
-			else if(!(getPiece(x, y) instanceof Blank)){
-				if(!getPiece(x,y).getColor().equalsIgnoreCase(initPiece.getColor())){
-					//get the current piece, its an enemy!
-					return getPiece(x,y).getPosition();
-				}
-				else{
-					//Likely same color, return one before
-					return getPiece(x-1,y).getPosition();
-				}
-			}
-			else{//... it'll shoot up through the recursiveness stack
-				return straightRecursive(x+1, y,'r',initPiece, newPos);//or just do it again 1 higher
-			}
-		}
-		return null;//just in case
-	}
-
-
-	/**
-	 * Returns farthest acceptable diagonal placement, using multiple recursive
-	 * functions.
-	 * @param x           x position of the checked position
-	 * @param y           y position of the checked position
-	 * @param dir         diagonal directions as strings
-	 * @param initPiece   initial piece being checked, doesn't change, just used
-	 * @param newPos      the new Position
-	 * @return            the position of either end of check or right place
-	 */
-	protected Position diagonalRecursive(int x, int y, String dir, Piece initPiece, Position newPos){
-		if(dir == "ul"){
-			//If the place just checked isn't a blank space...
-			if( !isOnBoard(x, y)){
-				return getPiece(x+1,y-1).getPosition();
-			}
-			else if(newPos.getXpos() == x && newPos.getYpos() == y){
-				//right space found!
-				return getPiece(x,y).getPosition();
-			}
-			else if(!(getPiece(x, y) instanceof Blank)){
-				if(!getPiece(x,y).getColor().equalsIgnoreCase(initPiece.getColor())){
-					//get the current piece, its an enemy!
-					return getPiece(x,y).getPosition();
-				}
-				else{
-					//Likely same color, return one before
-					return getPiece(x+1,y-1).getPosition();
-				}
-			}
-			else{//... it'll shoot up through the recursiveness stack
-				return diagonalRecursive(x-1,y+1,"ul",initPiece, newPos);//or just do it again 1 higher
-			}
-		}
-
-		if(dir == "dl"){
-			//If the place just checked isn't a blank space...
-			if( !isOnBoard(x, y)){
-				//return one before it
-				return getPiece(x+1,y+1).getPosition();
-			}
-			else if(newPos.getXpos() == x && newPos.getYpos() == y){
-				//found good position!
-				return getPiece(x,y).getPosition();
-			}
-			else if(!(getPiece(x, y) instanceof Blank)){
-				if(!getPiece(x,y).getColor().equalsIgnoreCase(initPiece.getColor())){
-					//get the current piece, its an enemy!
-					return getPiece(x,y).getPosition();
-				}
-				else{
-					//Likely same color, return one before
-					return getPiece(x+1,y+1).getPosition();
-				}
-			}
-			else{//... it'll shoot up through the recursiveness stack
-				return diagonalRecursive(x-1,y-1,"dl",initPiece, newPos);//or just do it again 1 higher
-			}
-		}
-
-		if(dir.equalsIgnoreCase("ur")){
-			//If the place just checked isn't a blank space...
-			if( !isOnBoard(x, y)){
-				return getPiece(x-1,y-1).getPosition();
-			}
-			else if(newPos.getXpos() == x && newPos.getYpos() == y){
-				return getPiece(x,y).getPosition();
-			}
-			else if(!(getPiece(x, y) instanceof Blank)){
-				if(!getPiece(x,y).getColor().equalsIgnoreCase(initPiece.getColor())){
-					//get the current piece, its an enemy!
-					return getPiece(x,y).getPosition();
-				}
-				else{
-					//Likely same color, return one before
-					return getPiece(x-1,y-1).getPosition();
-				}
-			}
-			else{//... it'll shoot up through the recursiveness stack
-				return diagonalRecursive(x+1,y+1,"ur",initPiece, newPos);//or just do it again 1 higher
-			}
-		}
-
-		if(dir.equalsIgnoreCase("dr")){
-			//If the place just checked isn't a blank space...
-			if( !isOnBoard(x, y)){
-				return getPiece(x-1,y+1).getPosition();
-			}
-			else if(newPos.getXpos() == x && newPos.getYpos() == y){
-				return getPiece(x,y).getPosition();
-			}
-			else if(!(getPiece(x, y) instanceof Blank)){
-				if(!getPiece(x,y).getColor().equalsIgnoreCase(initPiece.getColor())){
-					//get the current piece, its an enemy!
-					return getPiece(x,y).getPosition();
-				}
-				else{
-					//Likely same color, return one before
-					return getPiece(x-1,y+1).getPosition();
-				}
-			}
-			else{//... it'll shoot up through the recursiveness stack
-				return diagonalRecursive(x+1, y-1,"dr",initPiece, newPos);//or just do it again 1 higher
-			}
-		}
-		return null;//just in case
-	}
-
-
 	/**
 	 * Checking movement validity for pawns. Done in ChessBoard class due to
 	 * difficulties with checking board states in subclasses
@@ -637,52 +989,65 @@ public class ChessBoard {
 	 * @return       true if move is okay
 	 */
 	protected boolean moveCheck_pawn(Piece p, int relX, int relY){
-		if(p.getColor().equalsIgnoreCase("black")){
-			//basic advance
-			if(relX == 0 && relY == -1 && !getPieceRelative(p,relX,relY).getColor().equalsIgnoreCase("white"))
-				return true;
-			//first turn jump
-			else if(relX == 0 && relY == -2 && p.getYpos() == 6){
-				return true;
-			}
-			//capture, making sure capture is true
-			else if((relX == 1 || relX == -1) && relY == -1 && getPieceRelative(p,relX,relY).getColor().equalsIgnoreCase("white"))
-				return true;
-		}
-		else if(p.getColor().equalsIgnoreCase("white")){
-			//basic advance
-			if(relX == 0 && relY == 1 && !getPieceRelative(p,relX,relY).getColor().equalsIgnoreCase("black"))
-				return true;
-			//first turn jump
-			else if(relX == 0 && relY == 2 && p.getYpos() == 1){
-				return true;
-			}
-			//capture, making sure capture is true
-			else if((relX == 1 || relX == -1) && relY == 1 && getPieceRelative(p,relX,relY).getColor().equalsIgnoreCase("black"))
-				return true;
-		}
+		int code = pieceCode(p);
+		if(code == BitBoard.EMPTY || !isOnBoard(p.getXpos() + relX, p.getYpos() + relY))
+			return false;
+		int color = BitBoard.colorOf(code);
+		int forward = color == BitBoard.WHITE ? 1 : -1;
+		int to = BitBoard.square(p.getXpos() + relX, p.getYpos() + relY);
+		long target = BitBoard.bit(to);
+		boolean empty = (bits.getAll() & target) == 0;
+		boolean enemy = (bits.getOccupied(color ^ 1) & target) != 0;
+		//basic advance
+		if(relX == 0 && relY == forward && empty)
+			return true;
+		//first turn jump, over an empty square
+		else if(relX == 0 && relY == 2 * forward && p.getYpos() == (color == BitBoard.WHITE ? 1 : 6))
+			return empty && (bits.getAll() & BitBoard.bit(to - 8 * forward)) == 0;
+		//capture, making sure capture is true
+		else if((relX == 1 || relX == -1) && relY == forward && enemy)
+			return true;
+		//en passant, onto the square the enemy Pawn jumped over
+		else if((relX == 1 || relX == -1) && relY == forward && to == bits.getEpSquare() &&
+				BitBoard.yOf(to) == (color == BitBoard.WHITE ? 5 : 2))
+			return true;
 		return false;
 	}
 
 
 	/**
-	 * A general method for checking if a rook's new position works. Sends off
-	 * p in differing directions, checking either if the correct position is on
-	 * a blank or on the first enemy piece
+	 * Shared ending for the sliding piece checks. Looks the destination up in
+	 * the attack set given for the piece, leaving out squares held by the
+	 * piece's own side.
+	 * @param p         piece selected to be moved
+	 * @param relX      relative x position
+	 * @param relY      relative y position
+	 * @param attacks   squares the piece attacks from where it stands
+	 * @return          true if move is okay
+	 */
+	protected boolean slideCheck(Piece p, int relX, int relY, long attacks){
+		if(!isOnBoard(p.getXpos() + relX, p.getYpos() + relY))
+			return false;
+		int code = pieceCode(p);
+		if(code == BitBoard.EMPTY)
+			return false;
+		long targets = attacks & ~bits.getOccupied(BitBoard.colorOf(code));
+		return (targets & BitBoard.bit(BitBoard.square(p.getXpos() + relX, p.getYpos() + relY))) != 0;
+	}
+
+
+	/**
+	 * A general method for checking if a rook's new position works. Looks up
+	 * the squares the rook attacks along its ranks and files, which end on
+	 * either the board edge or the first piece in the way
 	 * @param p      piece selected to be moved
 	 * @param relX   relative x position
 	 * @param relY   relative y position
 	 * @return       true if move is okay
 	 */
 	protected boolean moveCheck_rook(Piece p, int relX, int relY){
-		Piece newPos = getPieceRelative(p,relX,relY);
-		if(straightRecursive(p.getXpos(), p.getYpos()+1, 'u', p, newPos.getPosition()).equals(newPos.getPosition()))
-			return true;
-		if(straightRecursive(p.getXpos(), p.getYpos()-1, 'd', p, newPos.getPosition()).equals(newPos.getPosition()))
-			return true;
-		if(straightRecursive(p.getXpos()-1, p.getYpos(), 'l', p, newPos.getPosition()).equals(newPos.getPosition()))
-			return true;
-		if(straightRecursive(p.getXpos()+1, p.getYpos(), 'r', p, newPos.getPosition()).equals(newPos.getPosition()))
+		int from = BitBoard.square(p.getXpos(), p.getYpos());
+		if(slideCheck(p, relX, relY, Attacks.rook(from, bits.getAll())))
 			return true;
 		if(verbose)
 			System.out.println("Correct position for Rook not found.");
@@ -698,59 +1063,47 @@ public class ChessBoard {
 	 * @return       true if move is okay
 	 */
 	protected boolean moveCheck_bishop(Piece p, int relX, int relY){
-		Piece newPos = getPieceRelative(p,relX,relY);
-		if(diagonalRecursive(p.getXpos()-1, p.getYpos()+1, "ul", p, newPos.getPosition()).equals(newPos.getPosition()))
-			return true;
-		if(diagonalRecursive(p.getXpos()+1, p.getYpos()-1, "dr", p, newPos.getPosition()).equals(newPos.getPosition()))
-			return true;
-		if(diagonalRecursive(p.getXpos()-1, p.getYpos()-1, "dl", p, newPos.getPosition()).equals(newPos.getPosition()))
-			return true;
-		if(diagonalRecursive(p.getXpos()+1, p.getYpos()+1, "ur", p, newPos.getPosition()).equals(newPos.getPosition()))
-			return true;
-		return false;
+		int from = BitBoard.square(p.getXpos(), p.getYpos());
+		return slideCheck(p, relX, relY, Attacks.bishop(from, bits.getAll()));
 	}
 
 
 	/**
-	 * A checker for King movement. Checks the surrounding board according to
-	 * legal moves, and returns true if it finds it.
+	 * A checker for King movement. Looks the destination up in the squares a
+	 * King can step to from where it stands. Two squares sideways is a
+	 * castle, which is allowed when MoveGenerator would offer it.
 	 * @param p      piece selected to be moved
 	 * @param relX   relative x position
 	 * @param relY   relative y position
 	 * @return       true if move is legal
 	 */
 	protected boolean moveCheck_king(Piece p, int relX, int relY){
+		if((relX == 2 || relX == -2) && relY == 0 && isOnBoard(p.getXpos() + relX, p.getYpos())){
+			int from = BitBoard.square(p.getXpos(), p.getYpos());
+			return Move.isCastle(findMove(from, from + relX));
+		}
 		if(relX > 1 || relX < -1 || relY > 1 || relY < -1){
 			if(verbose)
 				System.out.println("Bad move! King cannot move that far.");
 			return false;
 		}
-		Piece newPos = getPieceRelative(p, relX, relY);
-		if(p.getXpos()+1==newPos.getXpos() && p.getYpos()+0==newPos.getYpos()){//(1,0)
-			return true;
-		}
-		else if(p.getXpos()+1==newPos.getXpos() && p.getYpos()-1==newPos.getYpos()){//(1,-1)
-			return true;
-		}
-		else if(p.getXpos()+0==newPos.getXpos() && p.getYpos()-1==newPos.getYpos()){//(0,-1)
-			return true;
-		}
-		else if(p.getXpos()-1==newPos.getXpos() && p.getYpos()-1==newPos.getYpos()){//(-1,-1)
-			return true;
-		}
-		else if(p.getXpos()-1==newPos.getXpos() && p.getYpos()+0==newPos.getYpos()){//(-1,0)
-			return true;
-		}
-		else if(p.getXpos()-1==newPos.getXpos() && p.getYpos()+1==newPos.getYpos()){//(-1,1)
-			return true;
-		}
-		else if(p.getXpos()+0==newPos.getXpos() && p.getYpos()+1==newPos.getYpos()){//(0,1)
-			return true;
-		}
-		else if(p.getXpos()+1==newPos.getXpos() && p.getYpos()+1==newPos.getYpos()){//(1,1)
-			return true;
-		}
-		return false;
+		return stepCheck(p, relX, relY, Attacks.king(BitBoard.square(p.getXpos(), p.getYpos())));
+	}
+
+
+	/**
+	 * Shared ending for the King and Knight checks. Looks the destination up
+	 * in the fixed set of squares the piece can step to.
+	 * @param p         piece selected to be moved
+	 * @param relX      relative x position
+	 * @param relY      relative y position
+	 * @param attacks   squares the piece can step to from where it stands
+	 * @return          true if move is okay
+	 */
+	protected boolean stepCheck(Piece p, int relX, int relY, long attacks){
+		if(!isOnBoard(p.getXpos() + relX, p.getYpos() + relY))
+			return false;
+		return (attacks & BitBoard.bit(BitBoard.square(p.getXpos() + relX, p.getYpos() + relY))) != 0;
 	}
 
 
@@ -763,62 +1116,21 @@ public class ChessBoard {
 	 * @return       true if move legal
 	 */
 	protected boolean moveCheck_queen(Piece p, int relX, int relY){
-		Piece newPos = getPieceRelative(p,relX,relY);
-		if(diagonalRecursive(p.getXpos()-1, p.getYpos()+1, "ul", p, newPos.getPosition()).equals(newPos.getPosition()))
-			return true;
-		if(diagonalRecursive(p.getXpos()+1, p.getYpos()-1, "dr", p, newPos.getPosition()).equals(newPos.getPosition()))
-			return true;
-		if(diagonalRecursive(p.getXpos()-1, p.getYpos()-1, "dl", p, newPos.getPosition()).equals(newPos.getPosition()))
-			return true;
-		if(diagonalRecursive(p.getXpos()+1, p.getYpos()+1, "ur", p, newPos.getPosition()).equals(newPos.getPosition()))
-			return true;
-		if(straightRecursive(p.getXpos(), p.getYpos()+1, 'u', p, newPos.getPosition()).equals(newPos.getPosition()))
-			return true;
-		if(straightRecursive(p.getXpos(), p.getYpos()-1, 'd', p, newPos.getPosition()).equals(newPos.getPosition()))
-			return true;
-		if(straightRecursive(p.getXpos()-1, p.getYpos(), 'l', p, newPos.getPosition()).equals(newPos.getPosition()))
-			return true;
-		if(straightRecursive(p.getXpos()+1, p.getYpos(), 'r', p, newPos.getPosition()).equals(newPos.getPosition()))
-			return true;
-		return false;
+		int from = BitBoard.square(p.getXpos(), p.getYpos());
+		return slideCheck(p, relX, relY, Attacks.queen(from, bits.getAll()));
 	}
 
 
 	/**
-	 * A checker for Knight movement. Checks the surrounding board according to
-	 * legal moves, and returns true if it finds it.
+	 * A checker for Knight movement. Looks the destination up in the squares a
+	 * Knight can jump to from where it stands.
 	 * @param p      selected Piece
 	 * @param relX   relative x position to check
 	 * @param relY   relative y position to check
 	 * @return       true if can move, false if not
 	 */
 	protected boolean moveCheck_knight(Piece p, int relX, int relY){
-		Piece newPos = getPieceRelative(p, relX, relY);
-		if(p.getXpos()+2==newPos.getXpos() && p.getYpos()+1==newPos.getYpos()){ //    (2,1)
-			return true;
-		}
-		else if(p.getXpos()+2==newPos.getXpos() && p.getYpos()-1==newPos.getYpos()){//(2,-1)
-			return true;
-		}
-		else if(p.getXpos()-2==newPos.getXpos() && p.getYpos()+1==newPos.getYpos()){//(-2,1)
-			return true;
-		}
-		else if(p.getXpos()-2==newPos.getXpos() && p.getYpos()-1==newPos.getYpos()){//(-2,-1)
-			return true;
-		}
-		else if(p.getXpos()+1==newPos.getXpos() && p.getYpos()+2==newPos.getYpos()){//(1,2)
-			return true;
-		}
-		else if(p.getXpos()+1==newPos.getXpos() && p.getYpos()-2==newPos.getYpos()){//(1,-2)
-			return true;
-		}
-		else if(p.getXpos()-1==newPos.getXpos() && p.getYpos()+2==newPos.getYpos()){//(-1,2)
-			return true;
-		}
-		else if(p.getXpos()-1==newPos.getXpos() && p.getYpos()-2==newPos.getYpos()){//(-1,-2)
-			return true;
-		}
-		return false;
+		return stepCheck(p, relX, relY, Attacks.knight(BitBoard.square(p.getXpos(), p.getYpos())));
 	}
 
 	/*
@@ -826,30 +1138,97 @@ public class ChessBoard {
 	 */
 
 	/**
-	 * Refreshes the lists of white and black pieces
+	 * Rebuilds the lists of white and black pieces from the board. The lists
+	 * are kept up to date as pieces are placed and moved, so this is only
+	 * needed if the matrix was written to directly.
 	 */
 	public void refreshPieceList(){
+		ensurePieces();
 		whitePieces.clear();
 		blackPieces.clear();
-		for(int i = 0; i < 8; i++){
-			for(int j = 0; j < 8; j++){
-				Piece p = getPiece(i, j); // Make sure not blank
-				if(!p.getColor().equalsIgnoreCase("blank")){
-					if(p.getColor().equalsIgnoreCase("white"))
-						whitePieces.add(p);
-					else if(p.getColor().equalsIgnoreCase("black"))
-						blackPieces.add(p);
-				}
+		for(int color = BitBoard.WHITE; color <= BitBoard.BLACK; color++){
+			long b = bits.getOccupied(color);
+			while(b != 0){
+				int sq = Long.numberOfTrailingZeros(b);
+				listAdd(color, sq, getPiece(BitBoard.xOf(sq), BitBoard.yOf(sq)));
+				b &= b - 1;
 			}
 		}
 	}
 
 
+	/**
+	 * Gets the list a color's pieces are kept in
+	 * @param color   BitBoard.WHITE or BitBoard.BLACK
+	 * @return        that color's piece list
+	 */
+	private ArrayList<Piece> pieceList(int color){
+		return color == BitBoard.WHITE ? whitePieces : blackPieces;
+	}
+
+
+	/**
+	 * Adds a piece standing on a square to its color's list
+	 * @param color   BitBoard.WHITE or BitBoard.BLACK
+	 * @param sq      square the piece is on
+	 * @param p       the piece
+	 */
+	private void listAdd(int color, int sq, Piece p){
+		ArrayList<Piece> list = pieceList(color);
+		listSquares[color][list.size()] = sq;
+		listIndex[sq] = list.size();
+		list.add(p);
+	}
+
+
+	/**
+	 * Takes the piece on a square out of its color's list. The last entry is
+	 * moved into the gap, so nothing has to be shifted along.
+	 * @param color   BitBoard.WHITE or BitBoard.BLACK
+	 * @param sq      square the piece is on
+	 */
+	private void listRemove(int color, int sq){
+		ArrayList<Piece> list = pieceList(color);
+		int i = listIndex[sq];
+		int last = list.size() - 1;
+		if(i != last){
+			list.set(i, list.get(last));
+			listSquares[color][i] = listSquares[color][last];
+			listIndex[listSquares[color][i]] = i;
+		}
+		list.remove(last);
+	}
+
+
+	/**
+	 * Records that a listed piece went from one square to another
+	 * @param color   BitBoard.WHITE or BitBoard.BLACK
+	 * @param from    square it left
+	 * @param to      square it went to, which must be out of the lists
+	 */
+	private void listMove(int color, int from, int to){
+		int i = listIndex[from];
+		listSquares[color][i] = to;
+		listIndex[to] = i;
+	}
+
+
+	/**
+	 * Gets the square a color's King is on, without looking for it
+	 * @param color   BitBoard.WHITE or BitBoard.BLACK
+	 * @return        square index, -1 if that color has no King
+	 */
+	public int getKingSquare(int color){
+		long king = bits.getPieces(color, BitBoard.KING);
+		return king == 0 ? -1 : Long.numberOfTrailingZeros(king);
+	}
+
+
 	/**
 	 * Prints to console a list of pieces on the board
 	 */
 	public void printPieceList(){
-		refreshPieceList();
+		ensurePieces();
 		System.out.print("White pieces: ");
 		for(int i = 0; i < whitePieces.size(); i++){
 			System.out.print(whitePieces.get(i).toString() + " ");
@@ -863,32 +1242,30 @@ public class ChessBoard {
 	}
 
 	/**
-	 * Returns a list of white pieces on the board
-	 * @return   ArrayList of white pieces
+	 * Returns a list of white pieces on the board. The list is read only and
+	 * follows the board as it changes.
+	 * @return   List of white pieces
 	 */
-	public ArrayList<Piece> getWhitePieces() {
-		refreshPieceList();
-		return whitePieces;
+	public List<Piece> getWhitePieces() {
+		return whiteView;
 	}
 
 	/**
-	 * Returns a list of black pieces on the board
-	 * @return   ArrayList of black pieces
+	 * Returns a list of black pieces on the board. The list is read only and
+	 * follows the board as it changes.
+	 * @return   List of black pieces
 	 */
-	public ArrayList<Piece> getBlackPieces() {
-		refreshPieceList();
-		return blackPieces;
+	public List<Piece> getBlackPieces() {
+		return blackView;
 	}
 
 	/**
-	 * Returns a list of all pieces on the board
-	 * @return   ArrayList of all pieces
+	 * Returns a list of all pieces on the board, white first. The list is
+	 * read only and follows the board as it changes.
+	 * @return   List of all pieces
 	 */
-	public ArrayList<Piece> getAllPieces() {
-		refreshPieceList();
-		ArrayList<Piece> p = whitePieces;
-		p.addAll(blackPieces);
-		return p;
+	public List<Piece> getAllPieces() {
+		return allView;
 	}
 
 }
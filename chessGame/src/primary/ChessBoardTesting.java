@@ -2,6 +2,8 @@ package primary;
 
 import static org.junit.Assert.*;
 
+import java.lang.reflect.Field;
+
 import org.junit.*;
 
 public class ChessBoardTesting {
@@ -23,8 +25,12 @@ public class ChessBoardTesting {
 	public void testIsOnBoardPosition() {
 		Position pos = new Position(0,0);
 		assertTrue(board.isOnBoard(pos));
-		pos.xPos = 20;
+		pos = new Position(20, 0);
 		assertFalse(board.isOnBoard(pos));
+		//squares on the board share one Position each
+		assertTrue(Position.of(3, 4) == Position.of(BitBoard.square(3, 4)));
+		assertTrue(board.getPiece(1, 0).getPosition() == Position.of(1, 0));
+		assertEquals(Position.of(3, 4).getSquare(), BitBoard.square(3, 4));
 	}
 	
 	@Test
@@ -34,6 +40,17 @@ public class ChessBoardTesting {
 		assertTrue(board.getPiece(0, 0) instanceof Rook);
 	}
 	
+	@Test
+	public void testPieceCodes() {
+		assertEquals(board.getPiece(3, 0).getCode(), BitBoard.code(BitBoard.WHITE, BitBoard.KING));
+		assertEquals(board.getPiece(4, 6).getCode(), BitBoard.code(BitBoard.BLACK, BitBoard.PAWN));
+		assertEquals(board.getPiece(3, 3).getCode(), BitBoard.EMPTY);
+		assertSame(board.getPiece(3, 3), Blank.at(3, 3));
+		assertTrue(board.move(board.getPiece(1, 0), 1, 2));
+		assertSame(board.getPiece(1, 0), Blank.at(1, 0));
+		assertEquals(board.getBitBoard().pieceAt(BitBoard.square(2, 2)), BitBoard.code(BitBoard.WHITE, BitBoard.KNIGHT));
+	}
+	
 	@Test
 	public void testMovesPieceintInt() {
 		assertFalse(board.move(board.getPiece(0, 0), 1, 1));
@@ -53,6 +70,30 @@ public class ChessBoardTesting {
 		assertEquals(board.getAllPieces().size(), 32);
 		assertEquals(board.getBlackPieces().size(), 16);
 		assertEquals(board.getWhitePieces().size(), 16);
+		//getAllPieces() used to append the black pieces onto whitePieces
+		//itself, so asking twice doubled the white list and the total
+		board.getAllPieces();
+		assertEquals(board.getWhitePieces().size(), 16);
+		assertEquals(board.getAllPieces().size(), 32);
+	}
+	
+	@Test
+	public void testPieceListsFollowMoves() {
+		Piece queen = board.getPiece(4, 7);
+		board.placePiece(new Pawn("White", 4, 6));
+		assertEquals(board.getBlackPieces().size(), 15);
+		assertEquals(board.getWhitePieces().size(), 17);
+		board.makeMove(Move.make(BitBoard.square(4, 1), BitBoard.square(4, 3), Move.DOUBLE_PUSH));
+		board.makeMove(Move.make(BitBoard.square(3, 7), BitBoard.square(4, 6), Move.CAPTURE));
+		assertEquals(board.getWhitePieces().size(), 16);
+		assertEquals(board.getKingSquare(BitBoard.BLACK), BitBoard.square(4, 6));
+		board.unmakeMove();
+		board.unmakeMove();
+		assertEquals(board.getWhitePieces().size(), 17);
+		assertEquals(board.getKingSquare(BitBoard.BLACK), BitBoard.square(3, 7));
+		assertTrue(board.getBlackPieces().contains(queen));
+		for(Piece p : board.getAllPieces())
+			assertSame(p, board.getPiece(p.getXpos(), p.getYpos()));
 	}
 	
 	@Test
@@ -61,4 +102,526 @@ public class ChessBoardTesting {
 		assertTrue(board.getPieceRelative(p, 0, -1) instanceof Knight);
 		assertFalse(board.getPieceRelative(p, 0, 1) instanceof Knight);
 	}
+	
+	@Test
+	public void testGenerateMoves() {
+		ChessBoard_ai ai = new ChessBoard_ai();
+		ai.resetBoard();
+		int moves[] = new int[MoveGenerator.MAX_MOVES];
+		assertEquals(ai.generateMoves(moves), 20);
+		assertEquals(ai.possibleMoves(1, 0).size(), 2);
+		assertEquals(ai.possibleMoves(1, 6).size(), 2);
+	}
+	
+	@Test
+	public void testMakeUnmakeMove() {
+		Piece knight = board.getPiece(1, 0);
+		board.makeMove(Move.make(BitBoard.square(1, 0), BitBoard.square(2, 2), Move.QUIET));
+		assertTrue(board.getPiece(2, 2) instanceof Knight);
+		assertTrue(board.getPiece(1, 0) instanceof Blank);
+		assertEquals(board.getTurn(), "Black");
+		assertTrue(board.unmakeMove());
+		assertSame(board.getPiece(1, 0), knight);
+		assertTrue(board.getPiece(2, 2) instanceof Blank);
+		assertEquals(board.getTurn(), "White");
+		assertFalse(board.unmakeMove());
+	}
+	
+	@Test
+	public void testHash() {
+		long start = board.getHash();
+		board.makeMove(Move.make(BitBoard.square(1, 0), BitBoard.square(2, 2), Move.QUIET));
+		assertNotEquals(board.getHash(), start);
+		assertEquals(board.getHash(), board.getBitBoard().computeHash());
+		board.unmakeMove();
+		assertEquals(board.getHash(), start);
+	}
+	
+	@Test
+	public void testIsInCheck() {
+		ChessBoard_ai ai = new ChessBoard_ai();
+		ai.resetBoard();
+		assertFalse(ai.isInCheck("white"));
+		assertFalse(ai.isInCheck("black"));
+		//knight, pawn, bishop and a rook with a piece in the way
+		ai.loadFen("4k3/8/5N2/8/8/8/8/4K3 b - - 0 1");
+		assertTrue(ai.isInCheck("black"));
+		ai.loadFen("4k3/8/8/8/8/8/3p4/4K3 w - - 0 1");
+		assertTrue(ai.isInCheck("white"));
+		ai.loadFen("4k3/8/8/b7/8/8/8/4K3 w - - 0 1");
+		assertTrue(ai.isInCheck(BitBoard.WHITE));
+		ai.loadFen("4k3/8/8/8/4r3/8/4B3/4K3 w - - 0 1");
+		assertFalse(ai.isInCheck(BitBoard.WHITE));
+	}
+	
+	@Test
+	public void testLegalMoves() {
+		ChessBoard_ai ai = new ChessBoard_ai();
+		int moves[] = new int[MoveGenerator.MAX_MOVES];
+		//the knight on (3,1) is pinned by the rook, so only the King can move
+		ai.loadFen("4r1k1/8/8/8/8/8/4N3/4K3 w - - 0 1");
+		assertEquals(ai.legalMoves(moves), 4);
+		assertFalse(ai.isLegalMove(3, 1, 2, 3));
+		assertTrue(ai.isLegalMove(3, 0, 2, 0));
+		assertFalse(ai.isLegalMove(3, 0, 3, 1));
+		//in check from the bishop: four King steps or the pawn blocks
+		ai.loadFen("6k1/8/8/8/1b6/8/2P5/R3K3 w - - 0 1");
+		assertEquals(ai.legalMoves(moves), 5);
+		assertTrue(ai.isLegalMove(5, 1, 5, 2));
+		assertFalse(ai.isLegalMove(7, 0, 7, 7));
+	}
+	
+	@Test
+	public void testCheckmateAndStalemate() {
+		ChessBoard_ai ai = new ChessBoard_ai();
+		ai.resetBoard();
+		assertFalse(ai.isCheckmated("white"));
+		assertFalse(ai.isStalemated("black"));
+		//fool's mate
+		ai.loadFen("rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w KQkq - 1 3");
+		assertTrue(ai.isCheckmated("white"));
+		assertFalse(ai.isStalemated("white"));
+		assertFalse(ai.isCheckmated("black"));
+		ai.loadFen("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1");
+		assertTrue(ai.isStalemated("black"));
+		assertFalse(ai.isCheckmated("black"));
+		assertEquals(ai.getTurn(), "Black");
+	}
+	
+	@Test
+	public void testAttackMap() {
+		ChessBoard_ai ai = new ChessBoard_ai();
+		ai.resetBoard();
+		AttackMap map = ai.getBitBoard().getAttackMap();
+		//the knight on (1,0) and the pawns either side both cover (2,2)
+		assertEquals(map.count(BitBoard.WHITE, BitBoard.square(2, 2)), 3);
+		assertEquals(map.count(BitBoard.BLACK, BitBoard.square(2, 2)), 0);
+		ai.makeMove(Move.make(BitBoard.square(3, 1), BitBoard.square(3, 3), Move.DOUBLE_PUSH));
+		ai.makeMove(Move.make(BitBoard.square(4, 6), BitBoard.square(4, 4), Move.DOUBLE_PUSH));
+		assertTrue(ai.canCapture(ai.getPiece(3, 3), 4, 4));
+		assertTrue(ai.canCapture(ai.getPiece(4, 4), 3, 3));
+		assertFalse(ai.canCapture(ai.getPiece(4, 0), 4, 4));
+		//the black queen's file opens, joining the two pawns covering (4,5)
+		map = ai.getBitBoard().getAttackMap();
+		assertEquals(map.count(BitBoard.BLACK, BitBoard.square(4, 5)), 3);
+		assertEquals(ai.piecesThatCanCaptureThis(ai.getPiece(3, 3)).size(), 1);
+		ai.unmakeMove();
+		map = ai.getBitBoard().getAttackMap();
+		assertEquals(map.count(BitBoard.BLACK, BitBoard.square(4, 5)), 2);
+		assertEquals(ai.piecesThatCanCaptureThis(ai.getPiece(3, 3)).size(), 0);
+
+		//the map only catches up when asked, however many moves it missed,
+		//and then matches one made from scratch
+		int moves[] = new int[MoveGenerator.MAX_MOVES];
+		for(int i = 0; i < 12; i++){
+			ai.legalMoves(moves);
+			ai.makeMove(moves[0]);
+		}
+		map = ai.getBitBoard().getAttackMap();
+		AttackMap fresh = new AttackMap(ai.getBitBoard());
+		for(int sq = 0; sq < 64; sq++){
+			assertEquals(map.attacksFrom(sq), fresh.attacksFrom(sq));
+			assertEquals(map.count(BitBoard.WHITE, sq), fresh.count(BitBoard.WHITE, sq));
+			assertEquals(map.count(BitBoard.BLACK, sq), fresh.count(BitBoard.BLACK, sq));
+		}
+
+		//any piece is judged by where it stands and what it is, not only the
+		//ones the board keeps
+		ai.resetBoard();
+		assertTrue(ai.canCapture(new Knight("white", 2, 5), 1, 7));
+		assertTrue(ai.canCapture(new Queen("white", 3, 3), 3, 6));
+		assertFalse(ai.canCapture(new Queen("black", 3, 3), 3, 6));
+		assertFalse(ai.canCapture(new Knight("white", 1, 0), 1, 7));
+	}
+	
+	@Test
+	public void testPerft() {
+		ChessBoard_ai ai = new ChessBoard_ai();
+		assertTrue(ai.loadFen(PerftSuite.POSITIONS[0]));
+		assertEquals(ai.getHash(), board.getHash());
+		assertEquals(ai.perft(1), 20);
+		assertEquals(ai.perft(2), 400);
+		assertEquals(ai.perftParallel(2), 400);
+		assertEquals(ai.divide(2).size(), 20);
+		//any depth is fine, even past the deepest the search goes, and after
+		//mate there is nothing left to count
+		assertTrue(ai.loadFen("rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w KQkq - 1 3"));
+		assertEquals(ai.perft(ChessBoard_ai.MAX_PLY + 10), 0);
+		assertEquals(ai.perftParallel(ChessBoard_ai.MAX_PLY + 10), 0);
+		assertEquals(ai.divide(ChessBoard_ai.MAX_PLY + 10).size(), 0);
+		//castling, en passant and promotions all show up in these
+		assertTrue(ai.loadFen(PerftSuite.POSITIONS[1]));
+		assertEquals(ai.perft(2), 2039);
+		assertTrue(ai.loadFen(PerftSuite.POSITIONS[2]));
+		assertEquals(ai.perft(3), 2812);
+		assertTrue(ai.loadFen(PerftSuite.POSITIONS[3]));
+		assertEquals(ai.perft(2), 264);
+	}
+
+	@Test
+	public void testCopy() {
+		ChessBoard_ai ai = new ChessBoard_ai();
+		assertTrue(ai.loadFen(PerftSuite.POSITIONS[1]));
+		ChessBoard_ai copy = new ChessBoard_ai(ai);
+		assertEquals(copy.getHash(), ai.getHash());
+		assertEquals(copy.perft(2), 2039);
+		//moves on the copy don't reach the original
+		int from = BitBoard.square(3, 0);
+		int to = BitBoard.square(1, 0);
+		copy.makeMove(copy.findLegalMove(from, to));
+		assertEquals(ai.getHash(), ai.bits.computeHash());
+		assertEquals(copy.getHash(), copy.bits.computeHash());
+		assertTrue(ai.getPiece(3, 0) instanceof King);
+		//the copy makes its own pieces when they are first asked for
+		assertTrue(copy.getPiece(1, 0) instanceof King);
+		assertTrue(copy.getPiece(2, 0) instanceof Rook);
+		assertEquals(copy.getAllPieces().size(), ai.getAllPieces().size());
+		assertTrue(copy.unmakeMove());
+		assertTrue(copy.getPiece(3, 0) instanceof King);
+		assertTrue(copy.getPiece(3, 0) != ai.getPiece(3, 0));
+		assertEquals(copy.getHash(), ai.getHash());
+	}
+
+	@Test
+	public void testRepetitionAndFiftyMoves() {
+		ChessBoard_ai ai = new ChessBoard_ai();
+		ai.resetBoard();
+		//both sides bring a Knight out and back, twice
+		int out[] = {BitBoard.square(1, 0), BitBoard.square(2, 2), BitBoard.square(1, 7), BitBoard.square(2, 5)};
+		for(int round = 1; round <= 2; round++){
+			assertFalse(ai.isThreefoldRepetition());
+			ai.makeMove(ai.findLegalMove(out[0], out[1]));
+			ai.makeMove(ai.findLegalMove(out[2], out[3]));
+			ai.makeMove(ai.findLegalMove(out[1], out[0]));
+			ai.makeMove(ai.findLegalMove(out[3], out[2]));
+			assertEquals(ai.bits.repetitions(), round);
+		}
+		assertTrue(ai.isThreefoldRepetition());
+		//a copy still knows the history
+		assertTrue(new ChessBoard_ai(ai).isThreefoldRepetition());
+		ai.unmakeMove();
+		assertFalse(ai.isThreefoldRepetition());
+		assertTrue(ai.bits.isRepetition());
+
+		//a Pawn move can't be undone, so nothing before it can repeat
+		ai.resetBoard();
+		ai.makeMove(ai.findLegalMove(out[0], out[1]));
+		ai.makeMove(ai.findLegalMove(out[2], out[3]));
+		ai.makeMove(ai.findLegalMove(BitBoard.square(3, 1), BitBoard.square(3, 2)));
+		assertEquals(ai.bits.getHalfmoveClock(), 0);
+
+		assertTrue(ai.loadFen("4k3/8/8/8/8/8/8/R3K3 w - - 99 80"));
+		assertFalse(ai.isFiftyMoveDraw());
+		ai.makeMove(ai.findLegalMove(BitBoard.square(7, 0), BitBoard.square(7, 5)));
+		assertTrue(ai.isFiftyMoveDraw());
+		ai.unmakeMove();
+		assertEquals(ai.bits.getHalfmoveClock(), 99);
+	}
+
+	@Test
+	public void testEvaluation() {
+		//the starting position is the same for both sides
+		ChessBoard_ai ai = new ChessBoard_ai();
+		ai.resetBoard();
+		assertEquals(ai.evaluate(), 0);
+		assertEquals(ai.bits.getPhase(), PieceSquareTables.MAX_PHASE);
+		//a Knight in the middle is better than one at home
+		ai.makeMove(ai.findLegalMove(BitBoard.square(1, 0), BitBoard.square(2, 2)));
+		assertTrue(ai.evaluate() < 0);
+
+		//the running sums match a board filled in from scratch after every
+		//kind of move, and come back after unmake
+		assertTrue(ai.loadFen(PerftSuite.POSITIONS[3]));
+		int start = ai.evaluate();
+		int moves[] = new int[MoveGenerator.MAX_MOVES];
+		int count = ai.legalMoves(moves);
+		for(int i = 0; i < count; i++){
+			ai.makeMove(moves[i]);
+			BitBoard fresh = new BitBoard();
+			for(int sq = 0; sq < 64; sq++){
+				if(ai.bits.pieceAt(sq) != BitBoard.EMPTY)
+					fresh.set(sq, ai.bits.pieceAt(sq));
+			}
+			assertEquals(ai.bits.getMidgameScore(), fresh.getMidgameScore());
+			assertEquals(ai.bits.getEndgameScore(), fresh.getEndgameScore());
+			assertEquals(ai.bits.getPhase(), fresh.getPhase());
+			ai.unmakeMove();
+		}
+		assertEquals(ai.evaluate(), start);
+	}
+
+	@Test
+	public void testQuiescence() {
+		ChessBoard_ai ai = new ChessBoard_ai();
+		//Rook takes an undefended Pawn
+		assertTrue(ai.loadFen("1k1r4/1pp4p/p7/4p3/8/P5P1/1PP4P/2K1R3 w - - 0 1"));
+		assertEquals(ai.staticExchange(ai.findLegalMove(BitBoard.square(3, 0), BitBoard.square(3, 4))), 100);
+		//Knight takes a Pawn, and the Rook and Queen behind it can't save it
+		assertTrue(ai.loadFen("1k1r3q/1ppn3p/p4b2/4p3/8/P2N2P1/1PP1R1BP/2K1Q3 w - - 0 1"));
+		assertEquals(ai.staticExchange(ai.findLegalMove(BitBoard.square(4, 2), BitBoard.square(3, 4))), -220);
+
+		//only captures and promotions come out of the capture generator
+		assertTrue(ai.loadFen(PerftSuite.POSITIONS[1]));
+		int moves[] = new int[MoveGenerator.MAX_MOVES];
+		int count = MoveGenerator.generateLegalCaptures(ai.bits, moves);
+		assertEquals(count, 8);
+		for(int i = 0; i < count; i++)
+			assertTrue(Move.isCapture(moves[i]) || Move.isPromotion(moves[i]));
+
+		//one ply deep the Queen would take the Pawn, but the search sees it
+		//taken back
+		assertTrue(ai.loadFen("4k3/8/2p5/3p4/8/8/8/3QK3 w - - 0 1"));
+		int greedy = ai.findLegalMove(BitBoard.square(4, 0), BitBoard.square(4, 4));
+		assertTrue(ai.search(1, 0, 0).getBestMove() != greedy);
+	}
+
+	@Test
+	public void testTranspositionTable() throws Exception {
+		TranspositionTable table = new TranspositionTable(1);
+		long key = 0x123456789ABCDEFL;
+		int move = Move.make(BitBoard.square(1, 0), BitBoard.square(2, 2), Move.QUIET);
+		assertEquals(table.probe(key), TranspositionTable.MISS);
+
+		//negative scores come back signed, and every field comes back whole
+		table.store(key, move, -1234, 12, TranspositionTable.UPPER);
+		long entry = table.probe(key);
+		assertEquals(TranspositionTable.moveOf(entry), move);
+		assertEquals(TranspositionTable.scoreOf(entry), -1234);
+		assertEquals(TranspositionTable.depthOf(entry), 12);
+		assertEquals(TranspositionTable.boundOf(entry), TranspositionTable.UPPER);
+		int promotion = Move.make(BitBoard.square(0, 6), BitBoard.square(1, 7), Move.PROMOTE_QUEEN | Move.CAPTURE);
+		table.store(key, promotion, ChessBoard_ai.INFINITY, 255, TranspositionTable.EXACT);
+		entry = table.probe(key);
+		assertEquals(TranspositionTable.moveOf(entry), promotion);
+		assertEquals(TranspositionTable.scoreOf(entry), ChessBoard_ai.INFINITY);
+		assertEquals(TranspositionTable.depthOf(entry), 255);
+
+		//a mate found at ply 3 is stored counting from the entry, and read
+		//back at ply 5 it is two plies further from the root
+		int mated = -ChessBoard_ai.MATE + 7;
+		table.store(key, move, ChessBoard_ai.scoreToTable(mated, 3), 4, TranspositionTable.EXACT);
+		int stored = TranspositionTable.scoreOf(table.probe(key));
+		assertEquals(stored, -ChessBoard_ai.MATE + 4);
+		assertEquals(ChessBoard_ai.scoreFromTable(stored, 3), mated);
+		assertEquals(ChessBoard_ai.scoreFromTable(stored, 5), mated + 2);
+		table.store(key, move, ChessBoard_ai.scoreToTable(ChessBoard_ai.MATE - 9, 2), 4, TranspositionTable.EXACT);
+		assertEquals(ChessBoard_ai.scoreFromTable(TranspositionTable.scoreOf(table.probe(key)), 2), ChessBoard_ai.MATE - 9);
+		assertEquals(ChessBoard_ai.scoreToTable(150, 9), 150);
+
+		//another position in the same slot is a miss, not a wrong answer
+		long other = key + table.size();
+		assertEquals(table.probe(other), TranspositionTable.MISS);
+
+		//a deeper entry for another position from this search is kept
+		table.store(key, move, 10, 8, TranspositionTable.EXACT);
+		table.store(other, move, 20, 3, TranspositionTable.EXACT);
+		assertEquals(table.probe(other), TranspositionTable.MISS);
+		assertEquals(TranspositionTable.depthOf(table.probe(key)), 8);
+		//but the same position is always overwritten
+		table.store(key, move, 30, 2, TranspositionTable.LOWER);
+		assertEquals(TranspositionTable.depthOf(table.probe(key)), 2);
+		//and so is one left over from an earlier search
+		table.store(key, move, 10, 8, TranspositionTable.EXACT);
+		table.newSearch();
+		table.store(other, move, 20, 3, TranspositionTable.EXACT);
+		assertEquals(TranspositionTable.scoreOf(table.probe(other)), 20);
+		assertEquals(table.probe(key), TranspositionTable.MISS);
+
+		//two threads writing the slot at once can leave the check word of one
+		//entry with the data word of another, which must read as a miss
+		int slot = (int)key & (table.size() - 1);
+		table.store(key, move, 10, 8, TranspositionTable.EXACT);
+		Field checksField = TranspositionTable.class.getDeclaredField("checks");
+		checksField.setAccessible(true);
+		long checks[] = (long[])checksField.get(table);
+		long keyCheck = checks[slot];
+		table.newSearch();
+		table.store(other, move, 20, 3, TranspositionTable.EXACT);
+		checks[slot] = keyCheck;
+		assertEquals(table.probe(key), TranspositionTable.MISS);
+		assertEquals(table.probe(other), TranspositionTable.MISS);
+
+		//clear() and resize() both empty the table
+		table.store(key, move, 10, 8, TranspositionTable.EXACT);
+		table.clear();
+		assertEquals(table.probe(key), TranspositionTable.MISS);
+		assertEquals(table.hashfull(), 0);
+		table.store(key, move, 10, 8, TranspositionTable.EXACT);
+		table.resize(2);
+		assertEquals(table.size(), 2 * 1024 * 1024 / 16);
+		assertEquals(table.probe(key), TranspositionTable.MISS);
+		table.store(key, move, 10, 8, TranspositionTable.EXACT);
+		assertEquals(TranspositionTable.scoreOf(table.probe(key)), 10);
+	}
+
+	@Test(timeout = 60000)
+	public void testParallelSearchStops() {
+		ChessBoard_ai ai = new ChessBoard_ai();
+		ai.setDebug(false);
+		ai.setThreads(8);
+		assertTrue(ai.loadFen(PerftSuite.POSITIONS[1]));
+		//a stop sent before a helper gets going must still stop it, whichever
+		//limit the search ends on
+		for(int i = 0; i < 20; i++)
+			assertTrue(ai.search(ChessBoard_ai.MAX_PLY, 0, 50).getBestMove() != Move.NONE);
+		for(int i = 0; i < 5; i++)
+			assertTrue(ai.search(2, 0, 0).getBestMove() != Move.NONE);
+		for(int i = 0; i < 5; i++)
+			assertTrue(ai.search(ChessBoard_ai.MAX_PLY, 20, 0).getBestMove() != Move.NONE);
+
+		//with no limits at all, only stopSearch() from another thread ends it
+		final ChessBoard_ai board = ai;
+		Thread stopper = new Thread(new Runnable(){
+			@Override
+			public void run(){
+				try {
+					Thread.sleep(200);
+				} catch (InterruptedException e) {
+				}
+				board.stopSearch();
+			}
+		});
+		stopper.start();
+		assertTrue(ai.search(ChessBoard_ai.MAX_PLY, 0, 0).getBestMove() != Move.NONE);
+		assertEquals(ai.getHash(), ai.bits.computeHash());
+	}
+
+	@Test
+	public void testMoveOrdering() {
+		ChessBoard_ai ai = new ChessBoard_ai();
+		ai.setDebug(false);
+		assertTrue(ai.loadFen(PerftSuite.POSITIONS[1]));
+		SearchResult result = ai.search(4, 0, 0);
+		assertTrue(result.getCutoffs() > 0);
+		//nearly every cutoff should come from the first move tried
+		assertTrue(result.getFirstMoveCutoffRate() > 0.9);
+		assertEquals(result.getPrincipalVariation()[0], result.getBestMove());
+	}
+
+	@Test
+	public void testSearchSettings() {
+		//the zero windows and aspiration windows only save work, the score
+		//is the same as plain alpha-beta finds
+		SearchResult results[] = new SearchResult[2];
+		for(int i = 0; i < 2; i++){
+			ChessBoard_ai ai = new ChessBoard_ai();
+			ai.setDebug(false);
+			ai.setPrincipalVariationSearch(i == 1);
+			ai.setAspirationWindows(i == 1);
+			ai.setNullMovePruning(false);
+			ai.setLateMoveReductions(false);
+			ai.setFutilityPruning(false);
+			ai.setCheckExtensions(false);
+			assertTrue(ai.loadFen(PerftSuite.POSITIONS[1]));
+			results[i] = ai.search(5, 0, 0);
+		}
+		assertEquals(results[0].getScore(), results[1].getScore());
+		assertTrue(results[1].getNodes() < results[0].getNodes());
+		assertTrue(new ChessBoard_ai().isPrincipalVariationSearch());
+	}
+
+	@Test
+	public void testSelectiveSearch() {
+		//passing and passing back is the same position again
+		ChessBoard_ai ai = new ChessBoard_ai();
+		ai.setDebug(false);
+		assertTrue(ai.loadFen("rnbqkbnr/ppp1pppp/8/8/2Pp4/8/PP1PPPPP/RNBQKBNR b KQkq c3 0 1"));
+		long start = ai.getHash();
+		ai.bits.makeNullMove();
+		assertEquals(ai.bits.getSide(), BitBoard.WHITE);
+		assertEquals(ai.bits.getEpSquare(), BitBoard.NO_SQUARE);
+		assertEquals(ai.getHash(), ai.bits.computeHash());
+		ai.bits.unmakeNullMove();
+		assertEquals(ai.getHash(), start);
+		assertEquals(ai.bits.getSide(), BitBoard.BLACK);
+		assertTrue(ai.bits.hasPieces(BitBoard.WHITE));
+
+		//the pruning still finds a mate in three, and searches far less
+		String fen = "r1b1kb1r/pppp1ppp/5q2/4n3/3KP3/2N3PN/PPP4P/R1BQ1B1R b kq - 0 1";
+		SearchResult results[] = new SearchResult[2];
+		for(int i = 0; i < 2; i++){
+			ai = new ChessBoard_ai();
+			ai.setDebug(false);
+			ai.setNullMovePruning(i == 1);
+			ai.setLateMoveReductions(i == 1);
+			ai.setFutilityPruning(i == 1);
+			ai.setCheckExtensions(i == 1);
+			assertTrue(ai.loadFen(fen));
+			results[i] = ai.search(5, 0, 0);
+			assertTrue(results[i].isMateScore());
+			assertTrue(results[i].getScore() > 0);
+		}
+		assertTrue(results[1].getNodes() < results[0].getNodes());
+
+		//a null move right at the end of a copy's undo arrays, which only
+		//BitBoard knows about, and then a real move past it
+		ai.resetBoard();
+		ChessBoard_ai copy = new ChessBoard_ai(ai);
+		copy.getPiece(0, 0);
+		int out[] = {BitBoard.square(1, 0), BitBoard.square(2, 2), BitBoard.square(1, 7), BitBoard.square(2, 5)};
+		while(copy.bits.getPly() < 64){
+			copy.makeMove(copy.findLegalMove(out[0], out[1]));
+			copy.makeMove(copy.findLegalMove(out[2], out[3]));
+			copy.makeMove(copy.findLegalMove(out[1], out[0]));
+			copy.makeMove(copy.findLegalMove(out[3], out[2]));
+		}
+		copy.makeNullMove();
+		copy.makeMove(copy.findLegalMove(out[2], out[3]));
+		assertTrue(copy.getPiece(2, 5) instanceof Knight);
+		assertTrue(copy.unmakeMove());
+		copy.unmakeNullMove();
+		assertEquals(copy.getHash(), ai.getHash());
+
+		//with only a Pawn left passing could be best, so it is never tried
+		assertTrue(ai.loadFen("8/8/8/8/8/4k3/4P3/4K3 b - - 0 1"));
+		assertFalse(ai.bits.hasPieces(BitBoard.WHITE));
+		assertFalse(ai.bits.hasPieces(BitBoard.BLACK));
+	}
+
+	@Test
+	public void testSpecialMoves() {
+		ChessBoard_ai ai = new ChessBoard_ai();
+		//castling King side takes the King from x = 3 to 1 and the Rook from 0 to 2
+		assertTrue(ai.loadFen("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1"));
+		long start = ai.getHash();
+		assertTrue(ai.move(ai.getPiece(3, 0), -2, 0));
+		assertTrue(ai.getPiece(1, 0) instanceof King);
+		assertTrue(ai.getPiece(2, 0) instanceof Rook);
+		assertTrue(ai.getPiece(0, 0) instanceof Blank);
+		assertEquals(ai.getKingSquare(BitBoard.WHITE), BitBoard.square(1, 0));
+		assertEquals(ai.bits.getCastling(), BitBoard.BLACK_KINGSIDE | BitBoard.BLACK_QUEENSIDE);
+		assertEquals(ai.getHash(), ai.bits.computeHash());
+		assertTrue(ai.unmakeMove());
+		assertEquals(ai.getHash(), start);
+		assertTrue(ai.getPiece(0, 0) instanceof Rook);
+		//not over a square the Rook on c8 attacks
+		assertTrue(ai.loadFen("2r1k2r/8/8/8/8/8/8/R3K2R w KQk - 0 1"));
+		assertFalse(ai.move(ai.getPiece(3, 0), 2, 0));
+		assertTrue(ai.isLegalMove(3, 0, 1, 0));
+
+		//en passant takes the Pawn beside, not the one on the landing square
+		assertTrue(ai.loadFen("4k3/8/8/3Pp3/8/8/8/4K3 w - e6 0 1"));
+		assertEquals(ai.bits.getEpSquare(), BitBoard.square(3, 5));
+		assertTrue(ai.isLegalMove(4, 4, 3, 5));
+		assertTrue(ai.move(ai.getPiece(4, 4), -1, 1));
+		assertTrue(ai.getPiece(3, 4) instanceof Blank);
+		assertEquals(ai.getBlackPieces().size(), 1);
+		assertTrue(ai.unmakeMove());
+		assertTrue(ai.getPiece(3, 4) instanceof Pawn);
+		assertEquals(ai.getBlackPieces().size(), 2);
+
+		//a Pawn reaching the last row becomes a Queen, and a Pawn again on unmake
+		assertTrue(ai.loadFen("4k3/1P6/8/8/8/8/8/4K3 w - - 0 1"));
+		Piece pawn = ai.getPiece(6, 6);
+		assertEquals(Move.promotionType(ai.findLegalMove(BitBoard.square(6, 6), BitBoard.square(6, 7))), BitBoard.QUEEN);
+		assertEquals(ai.possibleMoves(6, 6).size(), 1);
+		assertTrue(ai.move(pawn, 0, 1));
+		assertTrue(ai.getPiece(6, 7) instanceof Queen);
+		assertTrue(ai.unmakeMove());
+		assertTrue(ai.getPiece(6, 6) == pawn);
+
+		//the double step can't jump over a piece
+		assertTrue(ai.loadFen("4k3/8/8/8/8/4n3/4P3/4K3 w - - 0 1"));
+		assertFalse(ai.moveCheckAssigner(ai.getPiece(3, 1), 0, 2));
+	}
 }
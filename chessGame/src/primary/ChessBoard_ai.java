@@ -1,6 +1,10 @@
 package primary;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * An AI version of ChessBoard.java
@@ -9,64 +13,387 @@ import java.util.ArrayList;
  */
 public class ChessBoard_ai extends ChessBoard {
 
+	/** Score of being checkmated right now, mates further off score less */
+	public static final int MATE = 30000;
+	/** Deepest the search will ever go, in plies */
+	public static final int MAX_PLY = 64;
+	protected static final int INFINITY = 32000;
+
+	protected static final int PIECE_VALUES[] = {100, 320, 330, 500, 900, 0};
+	//values for exchanges, where losing the King has to cost more than
+	//anything it could win
+	protected static final int EXCHANGE_VALUES[] = {100, 320, 330, 500, 900, 20000};
+
+	//move ordering scores. Each kind of move is tried before the next, and
+	//history scores stay below COUNTER_MOVE_SCORE (see HISTORY_LIMIT)
+	private static final int HASH_MOVE_SCORE = 1 << 30;
+	private static final int GOOD_CAPTURE_SCORE = 1 << 29;
+	private static final int KILLER_SCORE = 1 << 28;
+	private static final int COUNTER_MOVE_SCORE = 1 << 27;
+	private static final int BAD_CAPTURE_SCORE = -(1 << 29);
+	private static final int HISTORY_LIMIT = 1 << 20;
+
+	//aspiration windows start this far either side of the last score, from
+	//this depth on
+	private static final int ASPIRATION_WINDOW = 35;
+	private static final int ASPIRATION_DEPTH = 4;
+
+	//null move pruning is tried this many plies from the leaves or more
+	private static final int NULL_MOVE_DEPTH = 3;
+	//late move reductions start at this depth, after this many moves
+	private static final int LMR_DEPTH = 3;
+	private static final int LMR_MOVES = 3;
+	//how far below alpha a quiet move has to leave things, by depth, before
+	//futility pruning gives up on it
+	private static final int FUTILITY_MARGINS[] = {0, 150, 300};
+
+	protected int moveBuffer[];
+
+	protected TranspositionTable tt;
+	protected int hashSize;
+
+	//search state, reused between searches. Made when first needed, so
+	//copies that never search don't pay for it
+	protected int searchMoves[][];
+	protected int searchScores[][];
+	protected int exchangeGain[];
+	//move ordering tables, indexed by Move.squares(). Made with pvTable
+	protected int killers[][];
+	protected int history[][];
+	protected int counterMoves[];
+	protected long cutoffs;
+	protected long firstMoveCutoffs;
+	protected int pvTable[][];
+	protected int pvLength[];
+	protected long nodes;
+	protected long nodeLimit;
+	protected long deadline;
+	protected volatile boolean stopped;
+	//the copies searching for this board while search() runs
+	protected volatile ChessBoard_ai searchers[];
+	protected int threads;
+	protected boolean pvs;
+	protected boolean aspiration;
+	protected boolean nullMove;
+	protected boolean lateMoveReductions;
+	protected boolean futility;
+	protected boolean checkExtensions;
+
 	/**
 	 * The same as ChessBoard, but with other AI abilities
 	 */
 	public ChessBoard_ai(){
 		super();
+		initAi();
+		hashSize = 16;
+	}
+
+	/**
+	 * Copy constructor. The copy gets its own position and its own search
+	 * state, and starts out without a transposition table of its own. Like
+	 * the ChessBoard copy it only copies flat arrays, so it is cheap enough
+	 * to make one per root move of a parallel search. If the
+	 * other board is also an AI board, its settings are copied too.
+	 * @param other   board to copy
+	 */
+	public ChessBoard_ai(ChessBoard other){
+		super(other);
+		initAi();
+		hashSize = 16;
+		if(other instanceof ChessBoard_ai){
+			hashSize = ((ChessBoard_ai)other).hashSize;
+			threads = ((ChessBoard_ai)other).threads;
+			pvs = ((ChessBoard_ai)other).pvs;
+			aspiration = ((ChessBoard_ai)other).aspiration;
+			nullMove = ((ChessBoard_ai)other).nullMove;
+			lateMoveReductions = ((ChessBoard_ai)other).lateMoveReductions;
+			futility = ((ChessBoard_ai)other).futility;
+			checkExtensions = ((ChessBoard_ai)other).checkExtensions;
+		}
+	}
+
+	/**
+	 * Sets up the buffers the AI methods work in. The move lists for each
+	 * ply are made as plies are reached (see movesAt()) and the principal
+	 * variation table when a search starts.
+	 */
+	private void initAi(){
+		moveBuffer = new int[MoveGenerator.MAX_MOVES];
+		searchMoves = new int[MAX_PLY][];
+		searchScores = new int[MAX_PLY][];
+		exchangeGain = new int[32];
+		threads = 1;
+		pvs = true;
+		aspiration = true;
+		nullMove = true;
+		lateMoveReductions = true;
+		futility = true;
+		checkExtensions = true;
+	}
+
+	/**
+	 * Gets the move list for a ply of search or perft, making it the first
+	 * time that ply is reached. The search never goes past MAX_PLY, but
+	 * perft can be asked for any depth, so the lists grow to fit.
+	 */
+	private int[] movesAt(int ply){
+		if(ply >= searchMoves.length)
+			searchMoves = Arrays.copyOf(searchMoves, ply + 1);
+		int moves[] = searchMoves[ply];
+		if(moves == null)
+			moves = searchMoves[ply] = new int[MoveGenerator.MAX_MOVES];
+		return moves;
+	}
+
+	/**
+	 * Gets the ordering scores that go with movesAt() for a ply, making them
+	 * the first time that ply is reached
+	 */
+	private int[] scoresAt(int ply){
+		int scores[] = searchScores[ply];
+		if(scores == null)
+			scores = searchScores[ply] = new int[MoveGenerator.MAX_MOVES];
+		return scores;
+	}
+
+	/*
+	 * Transposition table settings
+	 */
+
+	/**
+	 * Sets the size of the transposition table. An existing table is resized,
+	 * which throws away everything in it.
+	 * @param megabytes   table size in MB
+	 */
+	public void setHashSize(int megabytes){
+		hashSize = Math.max(1, megabytes);
+		if(tt != null)
+			tt.resize(hashSize);
+	}
+
+	/**
+	 * Getter for the transposition table size
+	 * @return   table size in MB
+	 */
+	public int getHashSize(){
+		return hashSize;
+	}
+
+	/**
+	 * Sets how many threads search() uses. Extra threads search copies of the
+	 * board and share their findings through the transposition table.
+	 * @param count   number of search threads, at least 1
+	 */
+	public void setThreads(int count){
+		threads = Math.max(1, count);
 	}
 
 	/**
-	 * Determines if inputted piece can capture what is at the position x and y
+	 * Getter for the number of search threads
+	 * @return   number of search threads
+	 */
+	public int getThreads(){
+		return threads;
+	}
+
+	/*
+	 * Search settings, each on by default. Turning them off is mostly useful
+	 * for measuring what they are worth.
+	 */
+
+	/**
+	 * Turns principal variation search on or off. With it on, every move but
+	 * the first at a node is searched with a zero width window, which only
+	 * proves it is no better than the first, and searched again with the
+	 * full window if that fails. With it off, every move gets the full
+	 * window, which is plain alpha-beta.
+	 * @param on   true to use principal variation search
+	 */
+	public void setPrincipalVariationSearch(boolean on){
+		pvs = on;
+	}
+
+	/**
+	 * Getter for principal variation search
+	 * @return   true if it is on
+	 */
+	public boolean isPrincipalVariationSearch(){
+		return pvs;
+	}
+
+	/**
+	 * Turns aspiration windows on or off. With them on, each iteration past
+	 * the first few starts with a narrow window around the score of the
+	 * last one, widening it and searching again if the score falls outside.
+	 * @param on   true to use aspiration windows
+	 */
+	public void setAspirationWindows(boolean on){
+		aspiration = on;
+	}
+
+	/**
+	 * Getter for aspiration windows
+	 * @return   true if they are on
+	 */
+	public boolean isAspirationWindows(){
+		return aspiration;
+	}
+
+	/**
+	 * Turns null move pruning on or off. With it on, away from the principal
+	 * variation, the side to move first passes and sees if a shallower
+	 * search still scores at least beta. If even passing is that good, the
+	 * node is cut off without searching any moves. It is not tried in check
+	 * or when the side to move has only Pawns left, where passing could
+	 * really be better than every move.
+	 * @param on   true to use null move pruning
+	 */
+	public void setNullMovePruning(boolean on){
+		nullMove = on;
+	}
+
+	/**
+	 * Getter for null move pruning
+	 * @return   true if it is on
+	 */
+	public boolean isNullMovePruning(){
+		return nullMove;
+	}
+
+	/**
+	 * Turns late move reductions on or off. With them on, quiet moves the
+	 * ordering put late are searched a ply or two less deep, and only
+	 * searched again at full depth if they turn out better than expected.
+	 * @param on   true to use late move reductions
+	 */
+	public void setLateMoveReductions(boolean on){
+		lateMoveReductions = on;
+	}
+
+	/**
+	 * Getter for late move reductions
+	 * @return   true if they are on
+	 */
+	public boolean isLateMoveReductions(){
+		return lateMoveReductions;
+	}
+
+	/**
+	 * Turns futility pruning on or off. With it on, one or two plies from
+	 * the leaves, quiet moves are skipped when the static evaluation is so
+	 * far below alpha that a quiet move is very unlikely to make it up.
+	 * @param on   true to use futility pruning
+	 */
+	public void setFutilityPruning(boolean on){
+		futility = on;
+	}
+
+	/**
+	 * Getter for futility pruning
+	 * @return   true if it is on
+	 */
+	public boolean isFutilityPruning(){
+		return futility;
+	}
+
+	/**
+	 * Turns check extensions on or off. With them on, a position in check is
+	 * searched a ply deeper, so forcing lines are followed to the end.
+	 * @param on   true to use check extensions
+	 */
+	public void setCheckExtensions(boolean on){
+		checkExtensions = on;
+	}
+
+	/**
+	 * Getter for check extensions
+	 * @return   true if they are on
+	 */
+	public boolean isCheckExtensions(){
+		return checkExtensions;
+	}
+
+	/**
+	 * Empties the transposition table, for example when a new game starts
+	 */
+	public void clearHash(){
+		if(tt != null)
+			tt.clear();
+	}
+
+	/**
+	 * Returns the transposition table, creating it the first time it is
+	 * needed so boards that never search don't pay for it
+	 * @return   this board's transposition table
+	 */
+	public TranspositionTable getTranspositionTable(){
+		if(tt == null)
+			tt = new TranspositionTable(hashSize);
+		return tt;
+	}
+
+	/**
+	 * Makes this board use another board's table, so searches on both share
+	 * what they find. The table is safe to share between threads.
+	 * @param table   transposition table to use
+	 */
+	public void setTranspositionTable(TranspositionTable table){
+		tt = table;
+	}
+
+	/**
+	 * Determines if inputted piece can capture what is at the position x and y.
+	 * The attacker is judged by its type, color and position, so it doesn't
+	 * have to be the Piece object this board keeps on that square. When the
+	 * board does have that kind of piece there, the answer is read from the
+	 * board's attack maps (see AttackMap).
 	 * @param attacker   attacking piece
 	 * @param x          x coordinate of attacked position
 	 * @param y          y coordinate of attacked position
 	 * @return           true if attacker can capture a piece at location
 	 */
 	public boolean canCapture(Piece attacker, int x, int y){
-		if(canMove(attacker) == false || !isOnBoard(x, y))
+		if(attacker == null || !isOnBoard(x, y) || !isOnBoard(attacker.getXpos(), attacker.getYpos()))
 			return false;
-		Piece p = getPiece(x, y);
-		// Do move check
-		if(!moveCheckAssigner(attacker, x - attacker.getXpos(), y - attacker.getYpos())){
+		int code = pieceCode(attacker);
+		if(code == BitBoard.EMPTY)
 			return false;
-		}
-		if(p.getColor().equalsIgnoreCase("white") && attacker.getColor().equalsIgnoreCase("black")) {
-			return true;
-		}
-		else if(p.getColor().equalsIgnoreCase("black") && attacker.getColor().equalsIgnoreCase("white")) {
-			return true;
-		}
-		else
+		int from = BitBoard.square(attacker.getXpos(), attacker.getYpos());
+		int to = BitBoard.square(x, y);
+		//only opposite colors can be captured
+		if((bits.getOccupied(BitBoard.colorOf(code) ^ 1) & BitBoard.bit(to)) == 0)
 			return false;
+		long attacks;
+		if(bits.pieceAt(from) == code)
+			attacks = bits.getAttackMap().attacksFrom(from);
+		else
+			attacks = Attacks.of(code, from, bits.getAll());
+		return (attacks & BitBoard.bit(to)) != 0;
 	}
 
 	/**
-	 * Returns a list of pieces that can capture the selected Piece
+	 * Returns a list of pieces that can capture the selected Piece, read from
+	 * the board's attack maps (see AttackMap)
 	 * @param target   the selected Piece
 	 * @return         an ArrayList of Pieces that can capture the Piece
 	 */
 	public ArrayList<Piece> piecesThatCanCaptureThis(Piece target){
-		if(!isOnBoard(target.getXpos(),target.getYpos()) || target == null)
+		if(target == null || !isOnBoard(target.getXpos(),target.getYpos()))
 			return null;
-		ArrayList<Piece> pieceList = new ArrayList<Piece>();
-		refreshPieceList();
-		if(target.getColor().equalsIgnoreCase("black")){
-			for(int i = 0; i < whitePieces.size(); i++){
-				if(canCapture(whitePieces.get(i), target.getXpos(), target.getYpos())){
-					pieceList.add(whitePieces.get(i));
-				}
-			}
-		}
-		else if(target.getColor().equalsIgnoreCase("white")){
-			for(int i = 0; i < blackPieces.size(); i++){
-				if(canCapture(blackPieces.get(i), target.getXpos(), target.getYpos())){
-					pieceList.add(blackPieces.get(i));
-				}
-			}
-		}
-		else {
+		int sq = BitBoard.square(target.getXpos(), target.getYpos());
+		int color;
+		if((bits.getOccupied(BitBoard.WHITE) & BitBoard.bit(sq)) != 0)
+			color = BitBoard.WHITE;
+		else if((bits.getOccupied(BitBoard.BLACK) & BitBoard.bit(sq)) != 0)
+			color = BitBoard.BLACK;
+		else
 			return null;
+		ArrayList<Piece> pieceList = new ArrayList<Piece>();
+		long attackers = bits.getAttackMap().attackersTo(sq, color ^ 1);
+		while(attackers != 0){
+			int from = Long.numberOfTrailingZeros(attackers);
+			pieceList.add(getPiece(BitBoard.xOf(from), BitBoard.yOf(from)));
+			attackers &= attackers - 1;
 		}
 		return pieceList;
 	}
@@ -90,13 +417,15 @@ public class ChessBoard_ai extends ChessBoard {
 		if(!isOnBoard(x,y))
 			return false;
 		Piece p = getPiece(x,y);
+		int code = pieceCode(p);
+		if(code == BitBoard.EMPTY)
+			return false;
+		long own = bits.getOccupied(BitBoard.colorOf(code));
 		for(int i = -7; i < 8; i++){
 			for(int j = -7; j < 8; j++){
 				if(!(i == 0 && j == 0) && isOnBoard(x+i,y+j)){
-					if(moveCheckAssigner(p, i, j)){
-						if(!getPiece(x+i,y+j).getColor().equalsIgnoreCase(p.getColor())){
-							return true;
-						}
+					if((own & BitBoard.bit(BitBoard.square(x+i, y+j))) == 0 && moveCheckAssigner(p, i, j)){
+						return true;
 					}
 				}
 			}
@@ -111,74 +440,968 @@ public class ChessBoard_ai extends ChessBoard {
 	 * @return        king object of player, null if error
 	 */
 	public King getKing(String color){
-		if(color.equalsIgnoreCase("black") && getBlackPieces().size() > 0){
-			for(Piece p : blackPieces){
-				if(p instanceof King){
-					return (King)p;
-				}
-			}
-		}
-		if(color.equalsIgnoreCase("white") && getBlackPieces().size() > 0){
-			for(Piece p : whitePieces){
-				if(p instanceof King){
-					return (King)p;
-				}
-			}
+		int c;
+		if(color.equalsIgnoreCase("black"))
+			c = BitBoard.BLACK;
+		else if(color.equalsIgnoreCase("white"))
+			c = BitBoard.WHITE;
+		else
+			return null;
+		int sq = getKingSquare(c);
+		if(sq < 0)
+			return null;
+		return (King)getPiece(BitBoard.xOf(sq), BitBoard.yOf(sq));
+	}
+
+	/**
+	 * Writes every pseudo-legal move for the side to move into the buffer, as
+	 * packed moves (see Move). Nothing is allocated, so this is the one to
+	 * call from anything that runs often.
+	 * @param moves   buffer to fill, at least MoveGenerator.MAX_MOVES long
+	 * @return        number of moves written
+	 */
+	public int generateMoves(int moves[]){
+		return MoveGenerator.generate(bits, moves);
+	}
+
+	/**
+	 * Writes every legal move for the side to move into the buffer, as
+	 * packed moves (see Move). Pins and checks are worked out first, so no
+	 * move has to be tried to see whether it leaves the King in check.
+	 * @param moves   buffer to fill, at least MoveGenerator.MAX_MOVES long
+	 * @return        number of moves written
+	 */
+	public int legalMoves(int moves[]){
+		return MoveGenerator.generateLegal(bits, moves);
+	}
+
+	/**
+	 * Checks if moving the piece at one location to another is legal for
+	 * that piece's side, including not leaving its own King in check
+	 * @param fromX   x position of the piece
+	 * @param fromY   y position of the piece
+	 * @param toX     x position to move to
+	 * @param toY     y position to move to
+	 * @return        true if the move is legal
+	 */
+	public boolean isLegalMove(int fromX, int fromY, int toX, int toY){
+		if(!isOnBoard(fromX, fromY) || !isOnBoard(toX, toY))
+			return false;
+		return findLegalMove(BitBoard.square(fromX, fromY), BitBoard.square(toX, toY)) != Move.NONE;
+	}
+
+	/**
+	 * Finds the legal packed move taking the piece on one square to another,
+	 * for that piece's side, ready for makeMove(). A Pawn reaching the last
+	 * row is made a Queen.
+	 * @param from   square index of the piece
+	 * @param to     square index to move to
+	 * @return       the packed move, Move.NONE if it is not legal
+	 */
+	public int findLegalMove(int from, int to){
+		int code = bits.pieceAt(from);
+		if(code == BitBoard.EMPTY)
+			return Move.NONE;
+		//the generator works for the side to move, so borrow the turn if needed
+		int side = bits.getSide();
+		bits.setSide(BitBoard.colorOf(code));
+		int count = MoveGenerator.generateLegal(bits, moveBuffer);
+		bits.setSide(side);
+		//promotions are generated Queen first, so the first match is the one
+		for(int i = 0; i < count; i++){
+			if(Move.from(moveBuffer[i]) == from && Move.to(moveBuffer[i]) == to)
+				return moveBuffer[i];
 		}
-		return null;
+		return Move.NONE;
 	}
 
 	/**
-	 * TODO: possibleMoves
 	 * Returns a list of positions that the piece at the inputted location
-	 * can go to legally
+	 * can legally go to.
 	 * @param x   x position of piece to check
 	 * @param y   y position of piece to check
 	 * @return    ArrayList of possible position moves, null if error
 	 */
 	public ArrayList<Position> possibleMoves(int x, int y){
-		// Finish me
-		return null;
+		if(!isOnBoard(x, y))
+			return null;
+		int from = BitBoard.square(x, y);
+		int code = bits.pieceAt(from);
+		if(code == BitBoard.EMPTY)
+			return null;
+		//the generator works for the side to move, so borrow the turn if needed
+		int side = bits.getSide();
+		bits.setSide(BitBoard.colorOf(code));
+		int count = MoveGenerator.generateLegal(bits, moveBuffer);
+		bits.setSide(side);
+		ArrayList<Position> positions = new ArrayList<Position>();
+		for(int i = 0; i < count; i++){
+			if(Move.from(moveBuffer[i]) == from){
+				Position to = Position.of(Move.to(moveBuffer[i]));
+				//promotions give four moves to the same square
+				if(positions.isEmpty() || positions.get(positions.size() - 1) != to)
+					positions.add(to);
+			}
+		}
+		return positions;
 	}
 
 	/**
-	 * Checks if the player of set color is in check. Finds their King, and
-	 * sees if it is capturable by any pieces of the opposite color. If it can
-	 * be, return true.
+	 * Checks if the player of set color is in check. Looks outward from their
+	 * King's square for anything of the opposite color that attacks it (see
+	 * BitBoard.isAttacked()), so it costs the same however many pieces are
+	 * on the board.
 	 * @param color   color of player in question
 	 * @return        true if player is in check, false if not or error
 	 */
 	public boolean isInCheck(String color){
-		refreshPieceList();
-		ArrayList<Piece> pieceList;
-		if(color.equalsIgnoreCase("black")){
-			pieceList = getWhitePieces();
-			for(int i = 0; i < pieceList.size(); i++){
-				King k = getKing("black");
-				if(canCapture(pieceList.get(i),k.getXpos(),k.getYpos()))
-					return true;
-			}
-		}
-		else if(color.equalsIgnoreCase("white")){
-			pieceList = getBlackPieces();
-			for(int i = 0; i < pieceList.size(); i++){
-				King k = getKing("white");
-				if(canCapture(pieceList.get(i),k.getXpos(),k.getYpos()))
-					return true;
-			}
-		}
+		if(color.equalsIgnoreCase("black"))
+			return isInCheck(BitBoard.BLACK);
+		else if(color.equalsIgnoreCase("white"))
+			return isInCheck(BitBoard.WHITE);
 		return false;
 	}
 
 	/**
-	 * TODO: Checks the player of set color for checkmate
+	 * Checks if the player of set color is in check
+	 * @param color   BitBoard.WHITE or BitBoard.BLACK
+	 * @return        true if player is in check, false if not or no King
+	 */
+	public boolean isInCheck(int color){
+		return bits.inCheck(color);
+	}
+
+	/**
+	 * Checks the player of set color for checkmate
 	 * @param color   color of player being tested for checkmate
 	 * @return        true if player is in checkmate, false if not or error
 	 */
 	public boolean isCheckmated(String color){
-		if(isInCheck(color)){
-			// Finish me
-		}
+		if(color.equalsIgnoreCase("black"))
+			return isCheckmated(BitBoard.BLACK);
+		else if(color.equalsIgnoreCase("white"))
+			return isCheckmated(BitBoard.WHITE);
 		return false;
 	}
+
+	/**
+	 * Checks the player of set color for checkmate: in check, with no legal
+	 * move to get out of it
+	 * @param color   BitBoard.WHITE or BitBoard.BLACK
+	 * @return        true if player is in checkmate
+	 */
+	public boolean isCheckmated(int color){
+		return isInCheck(color) && !hasLegalMove(color);
+	}
+
+	/**
+	 * Checks the player of set color for stalemate
+	 * @param color   color of player being tested for stalemate
+	 * @return        true if player is in stalemate, false if not or error
+	 */
+	public boolean isStalemated(String color){
+		if(color.equalsIgnoreCase("black"))
+			return isStalemated(BitBoard.BLACK);
+		else if(color.equalsIgnoreCase("white"))
+			return isStalemated(BitBoard.WHITE);
+		return false;
+	}
+
+	/**
+	 * Checks the player of set color for stalemate: not in check, but with no
+	 * legal move either
+	 * @param color   BitBoard.WHITE or BitBoard.BLACK
+	 * @return        true if player is in stalemate
+	 */
+	public boolean isStalemated(int color){
+		return !isInCheck(color) && !hasLegalMove(color);
+	}
+
+	/**
+	 * Checks if the player of set color has any legal move, stopping at the
+	 * first one found (see MoveGenerator.hasLegalMove())
+	 * @param color   BitBoard.WHITE or BitBoard.BLACK
+	 * @return        true if the player can move
+	 */
+	public boolean hasLegalMove(int color){
+		//the generator works for the side to move, so borrow the turn if needed
+		int side = bits.getSide();
+		bits.setSide(color);
+		boolean result = MoveGenerator.hasLegalMove(bits);
+		bits.setSide(side);
+		return result;
+	}
+
+	/*
+	 * Search
+	 */
+
+	/**
+	 * Searches for the best move for the side to move, going one ply deeper
+	 * each time until the time runs out
+	 * @param millis   time budget in milliseconds
+	 * @return         result of the deepest finished iteration
+	 */
+	public SearchResult search(long millis){
+		return search(MAX_PLY, millis, 0);
+	}
+
+	/**
+	 * Searches for the best move for the side to move with iterative
+	 * deepening negamax alpha-beta. Each iteration goes one ply deeper than
+	 * the last, and the moves it finds are tried first by the next through
+	 * the transposition table. The search stops as soon as any of the limits
+	 * is hit and reports the last iteration it finished. Principal variation
+	 * search and aspiration windows (see the search settings) cut down the
+	 * positions each iteration has to look at.
+	 * <br>
+	 * With more than one thread set, this is a "lazy SMP" search: helper
+	 * threads each search their own copy of the board from the same root,
+	 * half of them starting one ply deeper so they spread out, and all of
+	 * them share one transposition table. The helpers fill the table with
+	 * results the main thread then finds instead of searching itself.
+	 * <br>
+	 * The main thread searches a copy as well, so this board and its Piece
+	 * objects are never touched by the search, and nothing is allocated for
+	 * the moves it plays.
+	 * @param maxDepth    deepest iteration to run, in plies
+	 * @param millis      time budget in milliseconds, 0 for none
+	 * @param maxNodes    node budget for each thread, 0 for none
+	 * @return            the search result
+	 */
+	public SearchResult search(final int maxDepth, long millis, long maxNodes){
+		final long start = System.currentTimeMillis();
+		final long end = millis > 0 ? start + millis : Long.MAX_VALUE;
+		final long helperNodes = maxNodes;
+		TranspositionTable table = getTranspositionTable();
+		table.newSearch();
+		//cleared here and not in iterate(), so a stop sent to a helper before
+		//its thread gets going isn't lost. New copies start out unstopped
+		stopped = false;
+
+		//every thread searches a copy, even the main one, so the moves it
+		//tries never touch this board's Piece objects. The main copy works
+		//in this board's buffers and ordering tables, so those carry over
+		//from one search to the next
+		initSearchTables();
+		final ChessBoard_ai boards[] = new ChessBoard_ai[threads];
+		for(int i = 0; i < threads; i++){
+			boards[i] = new ChessBoard_ai(this);
+			boards[i].setTranspositionTable(table);
+			if(i > 0)
+				boards[i].setDebug(false);
+		}
+		ChessBoard_ai main = boards[0];
+		main.searchMoves = searchMoves;
+		main.searchScores = searchScores;
+		main.pvTable = pvTable;
+		main.pvLength = pvLength;
+		main.killers = killers;
+		main.history = history;
+		main.counterMoves = counterMoves;
+		searchers = boards;
+		if(stopped)
+			stopSearch();
+
+		final SearchResult helperResults[] = new SearchResult[threads - 1];
+		Thread workers[] = new Thread[threads - 1];
+		for(int i = 0; i < workers.length; i++){
+			final int id = i;
+			workers[i] = new Thread(new Runnable(){
+				@Override
+				public void run(){
+					helperResults[id] = boards[id + 1].iterate(maxDepth, 1 + (id & 1), end, helperNodes, start);
+				}
+			}, "search-helper-" + (i + 1));
+			workers[i].setDaemon(true);
+			workers[i].start();
+		}
+
+		SearchResult result = main.iterate(maxDepth, 1, end, maxNodes, start);
+
+		for(int i = 1; i < boards.length; i++)
+			boards[i].stopSearch();
+		long totalNodes = result.getNodes();
+		for(int i = 0; i < workers.length; i++){
+			try {
+				workers[i].join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			//a helper that finished a deeper iteration knows better
+			if(helperResults[i] != null){
+				totalNodes += helperResults[i].getNodes();
+				if(helperResults[i].getDepth() > result.getDepth() && helperResults[i].getBestMove() != Move.NONE)
+					result = helperResults[i];
+			}
+		}
+		searchers = null;
+		return new SearchResult(result.getBestMove(), result.getScore(), result.getDepth(),
+			result.getPrincipalVariation(), totalNodes, System.currentTimeMillis() - start,
+			result.getCutoffs(), result.getFirstMoveCutoffs());
+	}
+
+	/**
+	 * Runs the iterative deepening loop on this board alone. It doesn't
+	 * clear the stop flag, search() does that before any thread starts.
+	 * @param maxDepth     deepest iteration to run, in plies
+	 * @param startDepth   first iteration to run
+	 * @param end          time to stop at, as System.currentTimeMillis()
+	 * @param maxNodes     node budget, 0 for none
+	 * @param start        time the search started, for reporting
+	 * @return             result of the deepest finished iteration
+	 */
+	protected SearchResult iterate(int maxDepth, int startDepth, long end, long maxNodes, long start){
+		initSearchTables();
+		deadline = end;
+		nodeLimit = maxNodes > 0 ? maxNodes : Long.MAX_VALUE;
+		nodes = 0;
+		cutoffs = 0;
+		firstMoveCutoffs = 0;
+		//killers belong to the position searched, but history is still a
+		//fair guess in the next one
+		for(int i = 0; i < MAX_PLY; i++){
+			killers[i][0] = Move.NONE;
+			killers[i][1] = Move.NONE;
+		}
+		ageHistory();
+
+		int bestMove = Move.NONE;
+		int bestScore = 0;
+		int bestDepth = 0;
+		int pv[] = new int[0];
+		maxDepth = Math.min(maxDepth, MAX_PLY - 1);
+		for(int depth = Math.min(startDepth, maxDepth); depth <= maxDepth; depth++){
+			int score;
+			if(aspiration && bestDepth > 0 && depth >= ASPIRATION_DEPTH)
+				score = aspirationSearch(depth, bestScore);
+			else
+				score = alphaBeta(depth, -INFINITY, INFINITY, 0);
+			if(stopped)
+				break;
+			bestScore = score;
+			bestDepth = depth;
+			pv = Arrays.copyOf(pvTable[0], pvLength[0]);
+			bestMove = pv.length > 0 ? pv[0] : Move.NONE;
+			if(verbose)
+				System.out.println(new SearchResult(bestMove, bestScore, bestDepth, pv, nodes,
+					System.currentTimeMillis() - start, cutoffs, firstMoveCutoffs));
+			//no point going deeper once a forced mate is found
+			if(Math.abs(score) >= MATE - MAX_PLY)
+				break;
+		}
+		//if not even the first iteration finished, take any legal move
+		if(bestMove == Move.NONE)
+			bestMove = firstLegalMove();
+		if(pv.length == 0 && bestMove != Move.NONE)
+			pv = new int[]{bestMove};
+		return new SearchResult(bestMove, bestScore, bestDepth, pv, nodes,
+			System.currentTimeMillis() - start, cutoffs, firstMoveCutoffs);
+	}
+
+	/**
+	 * Searches the root in a window around the score the last iteration
+	 * found. A score on or outside the window only says the real score is
+	 * at least or at most that much, so the window is widened on that side,
+	 * twice as far each time, and the root searched again until the score
+	 * lands inside it.
+	 * @param depth   plies to search
+	 * @param guess   score of the last iteration
+	 * @return        score of the position
+	 */
+	protected int aspirationSearch(int depth, int guess){
+		int window = ASPIRATION_WINDOW;
+		int alpha = Math.max(guess - window, -INFINITY);
+		int beta = Math.min(guess + window, INFINITY);
+		while(true){
+			int score = alphaBeta(depth, alpha, beta, 0);
+			if(stopped || (score > alpha && score < beta))
+				return score;
+			window *= 2;
+			if(score <= alpha)
+				alpha = Math.max(score - window, -INFINITY);
+			else
+				beta = Math.min(score + window, INFINITY);
+		}
+	}
+
+	/**
+	 * Makes the principal variation and move ordering tables, the first time
+	 * a search needs them
+	 */
+	private void initSearchTables(){
+		if(pvTable == null){
+			pvTable = new int[MAX_PLY][MAX_PLY];
+			pvLength = new int[MAX_PLY];
+			killers = new int[MAX_PLY][2];
+			history = new int[2][Move.SQUARES];
+			counterMoves = new int[Move.SQUARES];
+		}
+	}
+
+	/**
+	 * Stops a running search as soon as possible. Safe to call from another
+	 * thread.
+	 */
+	public void stopSearch(){
+		stopped = true;
+		ChessBoard_ai running[] = searchers;
+		if(running != null){
+			for(int i = 0; i < running.length; i++)
+				running[i].stopSearch();
+		}
+	}
+
+	/**
+	 * The negamax alpha-beta search. Scores are always from the point of view
+	 * of the side to move. Moves after the first are searched with a zero
+	 * window first when principal variation search is on, and the other
+	 * search settings decide what is pruned, reduced or extended.
+	 * @param depth   plies left to search
+	 * @param alpha   score the side to move is already guaranteed
+	 * @param beta    score the opponent is already guaranteed
+	 * @param ply     distance from the root
+	 * @return        score of the position
+	 */
+	protected int alphaBeta(int depth, int alpha, int beta, int ply){
+		pvLength[ply] = ply;
+		nodes++;
+		if((nodes & 63) == 0)
+			checkLimits();
+		if(stopped)
+			return 0;
+		//a repeat or fifty quiet moves is a draw, whatever the position is worth
+		if(ply > 0 && (bits.isRepetition() || bits.isFiftyMoveDraw()))
+			return 0;
+		boolean inCheck = bits.inCheck(bits.getSide());
+		if(inCheck && checkExtensions)
+			depth++;
+		if(depth <= 0 || ply >= MAX_PLY - 1)
+			return quiesce(alpha, beta, ply);
+
+		TranspositionTable table = getTranspositionTable();
+		long key = bits.getHash();
+		int hashMove = Move.NONE;
+		long entry = table.probe(key);
+		if(entry != TranspositionTable.MISS){
+			hashMove = TranspositionTable.moveOf(entry);
+			if(ply > 0 && TranspositionTable.depthOf(entry) >= depth){
+				int score = scoreFromTable(TranspositionTable.scoreOf(entry), ply);
+				int bound = TranspositionTable.boundOf(entry);
+				if(bound == TranspositionTable.EXACT ||
+						(bound == TranspositionTable.LOWER && score >= beta) ||
+						(bound == TranspositionTable.UPPER && score <= alpha))
+					return score;
+			}
+		}
+
+		boolean pvNode = beta - alpha > 1;
+		boolean selective = !pvNode && !inCheck;
+		int staticEval = selective ? evaluate() : 0;
+		//if passing is already good enough, a real move would be too. Two
+		//passes in a row would only search the same position shallower
+		if(nullMove && selective && depth >= NULL_MOVE_DEPTH && staticEval >= beta &&
+				bits.getLastMove() != Move.NONE && bits.hasPieces(bits.getSide())){
+			int reduction = depth > 6 ? 3 : 2;
+			makeNullMove();
+			int score = -alphaBeta(depth - 1 - reduction, -beta, -beta + 1, ply + 1);
+			unmakeNullMove();
+			if(stopped)
+				return 0;
+			if(score >= beta)
+				return score >= MATE - MAX_PLY ? beta : score;
+		}
+		int futilityScore = -INFINITY;
+		if(futility && selective && depth < FUTILITY_MARGINS.length && Math.abs(alpha) < MATE - MAX_PLY &&
+				staticEval + FUTILITY_MARGINS[depth] <= alpha)
+			futilityScore = staticEval + FUTILITY_MARGINS[depth];
+
+		int moves[] = movesAt(ply);
+		int count = MoveGenerator.generateLegal(bits, moves);
+		if(count == 0)
+			return inCheck ? -MATE + ply : 0;
+		int scores[] = scoresAt(ply);
+		orderMoves(moves, scores, count, ply, hashMove);
+
+		int oldAlpha = alpha;
+		int bestScore = -INFINITY;
+		int bestMove = Move.NONE;
+		for(int i = 0; i < count; i++){
+			int m = pickNext(moves, scores, i, count);
+			boolean quiet = !Move.isCapture(m) && !Move.isPromotion(m);
+			makeMove(m);
+			boolean givesCheck = bits.inCheck(bits.getSide());
+			if(futilityScore > -INFINITY && i > 0 && quiet && !givesCheck){
+				unmakeMove();
+				if(futilityScore > bestScore)
+					bestScore = futilityScore;
+				continue;
+			}
+			int score;
+			if(i == 0)
+				score = -alphaBeta(depth - 1, -beta, -alpha, ply + 1);
+			else {
+				int reduction = 0;
+				if(lateMoveReductions && depth >= LMR_DEPTH && i >= LMR_MOVES && quiet &&
+						!inCheck && !givesCheck && scores[i] < COUNTER_MOVE_SCORE)
+					reduction = depth >= 6 && i >= 2 * LMR_MOVES ? 2 : 1;
+				//prove the move is no better than the best so far, which is
+				//cheap, and only search it properly if that fails
+				int childBeta = pvs ? alpha + 1 : beta;
+				score = -alphaBeta(depth - 1 - reduction, -childBeta, -alpha, ply + 1);
+				if(reduction > 0 && score > alpha)
+					score = -alphaBeta(depth - 1, -childBeta, -alpha, ply + 1);
+				if(pvs && score > alpha && score < beta)
+					score = -alphaBeta(depth - 1, -beta, -alpha, ply + 1);
+			}
+			unmakeMove();
+			if(stopped)
+				return 0;
+			if(score > bestScore){
+				bestScore = score;
+				bestMove = m;
+				if(score > alpha){
+					alpha = score;
+					pvTable[ply][ply] = m;
+					System.arraycopy(pvTable[ply + 1], ply + 1, pvTable[ply], ply + 1, pvLength[ply + 1] - ply - 1);
+					pvLength[ply] = pvLength[ply + 1];
+					if(score >= beta){
+						cutoffs++;
+						if(i == 0)
+							firstMoveCutoffs++;
+						if(!Move.isCapture(m) && !Move.isPromotion(m))
+							rememberQuietCutoff(m, depth, ply);
+						break;
+					}
+				}
+			}
+		}
+		int bound = bestScore >= beta ? TranspositionTable.LOWER :
+			bestScore > oldAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+		table.store(key, bestMove, scoreToTable(bestScore, ply), depth, bound);
+		return bestScore;
+	}
+
+	/**
+	 * Quiescence search, run where the main search runs out of depth. Only
+	 * captures and promotions are searched, so the score is never taken in
+	 * the middle of an exchange. The side to move can always stand pat on
+	 * the static evaluation instead of capturing, except in check, where
+	 * every evasion is searched so mates are still seen.
+	 * <br>
+	 * Captures are tried most valuable victim first, least valuable
+	 * attacker first among equals, and captures that lose material on the
+	 * static exchange (see staticExchange()) are not tried at all.
+	 * @param alpha   score the side to move is already guaranteed
+	 * @param beta    score the opponent is already guaranteed
+	 * @param ply     distance from the root
+	 * @return        score of the position
+	 */
+	protected int quiesce(int alpha, int beta, int ply){
+		pvLength[ply] = ply;
+		nodes++;
+		if((nodes & 63) == 0)
+			checkLimits();
+		if(stopped)
+			return 0;
+		if(ply >= MAX_PLY - 1)
+			return evaluate();
+
+		boolean inCheck = bits.inCheck(bits.getSide());
+		int moves[] = movesAt(ply);
+		int count;
+		int bestScore;
+		if(inCheck){
+			count = MoveGenerator.generateLegal(bits, moves);
+			if(count == 0)
+				return -MATE + ply;
+			bestScore = -INFINITY;
+		}
+		else {
+			bestScore = evaluate();
+			if(bestScore >= beta)
+				return bestScore;
+			if(bestScore > alpha)
+				alpha = bestScore;
+			count = MoveGenerator.generateLegalCaptures(bits, moves);
+		}
+
+		int scores[] = scoresAt(ply);
+		for(int i = 0; i < count; i++)
+			scores[i] = captureOrder(moves[i]);
+		for(int i = 0; i < count; i++){
+			int m = pickNext(moves, scores, i, count);
+			//a capture that loses material can't do better than standing pat
+			if(!inCheck && !Move.isPromotion(m) && staticExchange(m) < 0)
+				continue;
+			makeMove(m);
+			int score = -quiesce(-beta, -alpha, ply + 1);
+			unmakeMove();
+			if(stopped)
+				return 0;
+			if(score > bestScore){
+				bestScore = score;
+				if(score > alpha){
+					alpha = score;
+					if(score >= beta)
+						break;
+				}
+			}
+		}
+		return bestScore;
+	}
+
+	/**
+	 * Scores the moves of a ply in the order the search should try them: the
+	 * hash move, then captures and promotions that don't lose material,
+	 * most valuable victim first, then the killer moves of this ply, then
+	 * the move that last refuted the opponent's move, then the rest of the
+	 * quiet moves by their history scores, and last the losing captures.
+	 * @param moves      moves to score
+	 * @param scores     array the scores are written to
+	 * @param count      number of moves
+	 * @param ply        distance from the root
+	 * @param hashMove   move from the transposition table, or Move.NONE
+	 */
+	protected void orderMoves(int moves[], int scores[], int count, int ply, int hashMove){
+		int sideHistory[] = history[bits.getSide()];
+		int lastMove = bits.getLastMove();
+		int counter = lastMove != Move.NONE ? counterMoves[Move.squares(lastMove)] : Move.NONE;
+		for(int i = 0; i < count; i++){
+			int m = moves[i];
+			if(m == hashMove)
+				scores[i] = HASH_MOVE_SCORE;
+			else if(Move.isCapture(m) || Move.isPromotion(m))
+				scores[i] = captureOrder(m) + (staticExchange(m) >= 0 ? GOOD_CAPTURE_SCORE : BAD_CAPTURE_SCORE);
+			else if(m == killers[ply][0])
+				scores[i] = KILLER_SCORE + 1;
+			else if(m == killers[ply][1])
+				scores[i] = KILLER_SCORE;
+			else if(m == counter)
+				scores[i] = COUNTER_MOVE_SCORE;
+			else
+				scores[i] = sideHistory[Move.squares(m)];
+		}
+	}
+
+	/**
+	 * Records a quiet move that caused a beta cutoff, as a killer for its
+	 * ply, as the answer to the opponent's last move, and in the history
+	 * table, where deeper cutoffs count for more
+	 */
+	protected void rememberQuietCutoff(int move, int depth, int ply){
+		if(killers[ply][0] != move){
+			killers[ply][1] = killers[ply][0];
+			killers[ply][0] = move;
+		}
+		int lastMove = bits.getLastMove();
+		if(lastMove != Move.NONE)
+			counterMoves[Move.squares(lastMove)] = move;
+		int sideHistory[] = history[bits.getSide()];
+		sideHistory[Move.squares(move)] += depth * depth;
+		if(sideHistory[Move.squares(move)] >= HISTORY_LIMIT)
+			ageHistory();
+	}
+
+	/**
+	 * Halves every history score, so old cutoffs count for less than new ones
+	 */
+	protected void ageHistory(){
+		for(int color = BitBoard.WHITE; color <= BitBoard.BLACK; color++){
+			for(int i = 0; i < Move.SQUARES; i++)
+				history[color][i] >>= 1;
+		}
+	}
+
+	/**
+	 * Most valuable victim, least valuable attacker ordering score. A
+	 * promotion counts the piece promoted to as won. Quiet moves score 0.
+	 */
+	protected int captureOrder(int move){
+		int score = 0;
+		int to = Move.to(move);
+		if(Move.isEnPassant(move))
+			score = PIECE_VALUES[BitBoard.PAWN] * 8;
+		else if(Move.isCapture(move))
+			score = PIECE_VALUES[BitBoard.typeOf(bits.pieceAt(to))] * 8;
+		if(Move.isPromotion(move))
+			score += PIECE_VALUES[Move.promotionType(move)] * 8;
+		if(score > 0)
+			score += BitBoard.KING - BitBoard.typeOf(bits.pieceAt(Move.from(move)));
+		return score;
+	}
+
+	/**
+	 * Moves the best scored of the moves from index i on to index i, and
+	 * returns it. Trying moves this way only sorts as far as the search
+	 * actually gets before a cutoff.
+	 */
+	protected static int pickNext(int moves[], int scores[], int i, int count){
+		int best = i;
+		for(int j = i + 1; j < count; j++){
+			if(scores[j] > scores[best])
+				best = j;
+		}
+		int m = moves[best];
+		int s = scores[best];
+		moves[best] = moves[i];
+		scores[best] = scores[i];
+		moves[i] = m;
+		scores[i] = s;
+		return m;
+	}
+
+	/**
+	 * Static exchange evaluation. Plays out every capture on the target
+	 * square of a move, each side always taking back with its least valuable
+	 * attacker and free to stop when taking back would lose, and adds up
+	 * what changes hands. Attackers come from BitBoard.attackersTo() traced
+	 * against an occupancy that has the pieces already used taken out, so a
+	 * rook or bishop lined up behind one that captured joins in.
+	 * <br>
+	 * This is far cheaper than playing the captures out, and only the
+	 * target square is ever looked at, so pins and checks elsewhere are not
+	 * taken into account.
+	 * @param move   packed move to evaluate
+	 * @return       material the mover comes out ahead, in centipawns,
+	 *               negative if the move loses material
+	 */
+	public int staticExchange(int move){
+		int from = Move.from(move);
+		int to = Move.to(move);
+		int gain[] = exchangeGain;
+		long occ = bits.getAll();
+		int side = BitBoard.colorOf(bits.pieceAt(from));
+		int attacker = BitBoard.typeOf(bits.pieceAt(from));
+
+		if(Move.isEnPassant(move)){
+			gain[0] = EXCHANGE_VALUES[BitBoard.PAWN];
+			occ &= ~BitBoard.bit(BitBoard.enPassantVictim(to, side));
+		}
+		else if(Move.isCapture(move))
+			gain[0] = EXCHANGE_VALUES[BitBoard.typeOf(bits.pieceAt(to))];
+		else
+			gain[0] = 0;
+		if(Move.isPromotion(move)){
+			attacker = Move.promotionType(move);
+			gain[0] += EXCHANGE_VALUES[attacker] - EXCHANGE_VALUES[BitBoard.PAWN];
+		}
+
+		int d = 0;
+		long fromBit = BitBoard.bit(from);
+		while(true){
+			d++;
+			//what this side wins by taking the piece that just moved in
+			gain[d] = EXCHANGE_VALUES[attacker] - gain[d - 1];
+			//neither side can be made better off by going on
+			if(Math.max(-gain[d - 1], gain[d]) < 0)
+				break;
+			occ &= ~fromBit;
+			side ^= 1;
+			long attackers = bits.attackersTo(to, side, occ) & occ;
+			if(attackers == 0)
+				break;
+			for(attacker = BitBoard.PAWN; attacker <= BitBoard.KING; attacker++){
+				long ofType = attackers & bits.getPieces(side, attacker);
+				if(ofType != 0){
+					fromBit = ofType & -ofType;
+					break;
+				}
+			}
+			if(d == gain.length - 1)
+				break;
+		}
+		while(--d > 0)
+			gain[d - 1] = -Math.max(-gain[d - 1], gain[d]);
+		return gain[0];
+	}
+
+	/**
+	 * Passes the turn for null move pruning, keeping the turn this board
+	 * reports in step
+	 */
+	protected void makeNullMove(){
+		bits.makeNullMove();
+		currentTurn = colorName(bits.getSide());
+	}
+
+	/**
+	 * Takes back makeNullMove()
+	 */
+	protected void unmakeNullMove(){
+		bits.unmakeNullMove();
+		currentTurn = colorName(bits.getSide());
+	}
+
+	/**
+	 * Static evaluation of the position, from the point of view of the side
+	 * to move. Material and piece placement come from the piece-square
+	 * tables (see PieceSquareTables), blended between middlegame and endgame
+	 * by how many pieces are left. The BitBoard keeps those sums up to date
+	 * on every move, so nothing is counted here.
+	 * @return   score in centipawns
+	 */
+	public int evaluate(){
+		int score = bits.getTaperedScore();
+		return bits.getSide() == BitBoard.WHITE ? score : -score;
+	}
+
+	/**
+	 * Finds any legal move for the side to move
+	 * @return   packed move, Move.NONE if there are none
+	 */
+	protected int firstLegalMove(){
+		int count = MoveGenerator.generateLegal(bits, moveBuffer);
+		return count > 0 ? moveBuffer[0] : Move.NONE;
+	}
+
+	/**
+	 * Stops the search if it has run out of time or nodes
+	 */
+	protected void checkLimits(){
+		if(nodes >= nodeLimit || System.currentTimeMillis() >= deadline)
+			stopped = true;
+	}
+
+	/**
+	 * Mate scores count plies from the root, but a table entry can be found
+	 * again at any ply, so they are stored counting from the entry instead
+	 */
+	protected static int scoreToTable(int score, int ply){
+		if(score >= MATE - MAX_PLY)
+			return score + ply;
+		if(score <= -MATE + MAX_PLY)
+			return score - ply;
+		return score;
+	}
+
+	/**
+	 * Undoes scoreToTable() for a score read back at the given ply
+	 */
+	protected static int scoreFromTable(int score, int ply){
+		if(score >= MATE - MAX_PLY)
+			return score - ply;
+		if(score <= -MATE + MAX_PLY)
+			return score + ply;
+		return score;
+	}
+
+	/*
+	 * Perft, counting the leaves of the legal move tree
+	 */
+
+	/**
+	 * Counts every legal line of play the given number of plies deep. These
+	 * counts are known exactly for standard positions (see PerftSuite), so
+	 * they show whether move generation and makeMove() are right, and timing
+	 * them shows how fast they are. Moves come from the legal generator, so
+	 * one ply from the end the number of moves is the count, without playing
+	 * them.
+	 * @param depth   plies to look ahead
+	 * @return        number of positions at that depth
+	 */
+	public long perft(int depth){
+		return perft(depth, 0);
+	}
+
+	/**
+	 * Body of perft(). The move lists are picked by distance from the root,
+	 * the same as in the search, so they are reused whatever the depth.
+	 */
+	private long perft(int depth, int ply){
+		if(depth <= 0)
+			return 1;
+		int moves[] = movesAt(ply);
+		int count = MoveGenerator.generateLegal(bits, moves);
+		if(depth == 1)
+			return count;
+		long total = 0;
+		for(int i = 0; i < count; i++){
+			makeMove(moves[i]);
+			total += perft(depth - 1, ply + 1);
+			unmakeMove();
+		}
+		return total;
+	}
+
+	/**
+	 * Perft split up by first move, handy for finding which move a wrong
+	 * count comes from
+	 * @param depth   plies to look ahead, at least 1
+	 * @return        each legal first move with its perft count beneath it
+	 */
+	public LinkedHashMap<Integer, Long> divide(int depth){
+		LinkedHashMap<Integer, Long> counts = new LinkedHashMap<Integer, Long>();
+		int moves[] = Arrays.copyOf(moveBuffer, MoveGenerator.generateLegal(bits, moveBuffer));
+		for(int i = 0; i < moves.length; i++){
+			makeMove(moves[i]);
+			counts.put(moves[i], perft(depth - 1));
+			unmakeMove();
+		}
+		if(verbose){
+			for(Integer m : counts.keySet())
+				System.out.println(Move.toString(m) + ": " + counts.get(m));
+		}
+		return counts;
+	}
+
+	/**
+	 * The same count as perft(), with each first move handed to its own task
+	 * on the common ForkJoinPool. Every task works on its own copy of the
+	 * board.
+	 * @param depth   plies to look ahead
+	 * @return        number of positions at that depth
+	 */
+	public long perftParallel(int depth){
+		return perftParallel(depth, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * The same count as perft(), with each first move handed to its own task
+	 * on the given pool. Every task works on its own copy of the board.
+	 * @param depth   plies to look ahead
+	 * @param pool    pool to run the tasks on
+	 * @return        number of positions at that depth
+	 */
+	public long perftParallel(int depth, ForkJoinPool pool){
+		if(depth <= 1)
+			return perft(depth);
+		int moves[] = Arrays.copyOf(moveBuffer, MoveGenerator.generateLegal(bits, moveBuffer));
+		final PerftTask tasks[] = new PerftTask[moves.length];
+		for(int i = 0; i < moves.length; i++)
+			tasks[i] = new PerftTask(this, moves[i], depth - 1);
+		return pool.invoke(new RecursiveTask<Long>(){
+			private static final long serialVersionUID = 1L;
+			@Override
+			protected Long compute(){
+				invokeAll(tasks);
+				long total = 0;
+				for(PerftTask t : tasks)
+					total += t.join();
+				return total;
+			}
+		});
+	}
+
+	/**
+	 * One first move of a parallel perft, counted on a private board copy
+	 */
+	private static class PerftTask extends RecursiveTask<Long> {
+		private static final long serialVersionUID = 1L;
+		private final ChessBoard_ai board;
+		private final int move;
+		private final int depth;
+
+		PerftTask(ChessBoard_ai root, int move, int depth){
+			this.board = new ChessBoard_ai(root);
+			this.move = move;
+			this.depth = depth;
+		}
+
+		@Override
+		protected Long compute(){
+			board.makeMove(move);
+			return board.perft(depth);
+		}
+	}
 }
@@ -55,6 +55,7 @@ public class ChessPlayGui extends Application {
 
 	private Position selectedSquare;
 	private boolean lookingForMove;
+	private boolean gameOver;
 
 	private ChessBoard_ai chess;
 
@@ -270,7 +271,7 @@ public class ChessPlayGui extends Application {
 			return null;
 		int x = ((int) (eventX - padding))/60;
 		int y = ((int) (eventY - padding))/60;
-		return new Position(x, 7-y);
+		return Position.of(x, 7-y);
 	}
 
 	/**
@@ -293,6 +294,12 @@ public class ChessPlayGui extends Application {
 			return;
 		if(pos.getXpos() > 7 || pos.getXpos() < 0 || pos.getYpos() > 7 || pos.getYpos() < 0)
 			return;
+		if(gameOver){
+			playSound.error();
+			if(chess.isDebug())
+				System.out.println("The game is over, reset or load to play again");
+			return;
+		}
 		if(chess.getPiece(pos).getClass().getSimpleName().equalsIgnoreCase("Blank") && !lookingForMove){
 			if(chess.isDebug())
 				System.out.println("Blank space selected without movement");
@@ -302,8 +309,7 @@ public class ChessPlayGui extends Application {
 			if(chess.isDebug())
 				System.out.println("Deselecting...");
 			updateBoard();
-			selectedSquare.setXpos(-1);
-			selectedSquare.setYpos(-1);
+			selectedSquare = Position.NONE;
 			lookingForMove = false;
 			playSound.click();
 			return;
@@ -326,35 +332,30 @@ public class ChessPlayGui extends Application {
 			Piece currentPiece = chess.getPiece(selectedSquare);
 			Position prePos = currentPiece.getPosition();
 
-			//setup capture logic
-			boolean isNewSquareEnemy = false;
-			String newSquareColor = chess.getPiece(pos).getColor();
-			String newSquareName = chess.getPiece(pos).getClass().getSimpleName();
-			if(chess.isDebug())
-				System.out.println("The new square's color: " + newSquareColor);
-			if(chess.getTurn().equalsIgnoreCase("white")){
-				if(newSquareColor.equalsIgnoreCase("black"))
-					isNewSquareEnemy = true;
-			}
-			else if(chess.getTurn().equalsIgnoreCase("black")){
-				if(newSquareColor.equalsIgnoreCase("white"))
-					isNewSquareEnemy = true;
-			}
-
-			//Now the actual move check
-			if(!chess.move(currentPiece, pos.getXpos() - prePos.getXpos(), pos.getYpos() - prePos.getYpos())){
+			//Now the actual move check, which also stops moves that leave the King in check
+			int m = chess.findLegalMove(prePos.getSquare(), pos.getSquare());
+			if(m == Move.NONE){
 				if(chess.isDebug())
 					System.out.print("Move not successful.");
 				playSound.error();
 				return;
 			}
+
+			//setup capture logic. En passant takes the Pawn beside the one moving
+			boolean isNewSquareEnemy = Move.isCapture(m);
+			Piece taken = chess.getPiece(Move.isEnPassant(m) ? Position.of(pos.getXpos(), prePos.getYpos()) : pos);
+			String newSquareColor = taken.getColor();
+			String newSquareName = taken.getClass().getSimpleName();
+			if(chess.isDebug())
+				System.out.println("The new square's color: " + newSquareColor);
+
+			//makeMove() passes the turn on as well
+			chess.makeMove(m);
 			//Move done, do updates
 
 			updateBoard();
 			lookingForMove = false;
-			selectedSquare.setXpos(-1);
-			selectedSquare.setYpos(-1);
-			chess.changeTurn();
+			selectedSquare = Position.NONE;
 			printMove("" + turnNumber + ". " + chess.getPiece(pos).getColor() +
 					" " + chess.getPiece(pos).getClass().getSimpleName() +
 					" moved to (" + (pos.getXpos()+1) + ", " + (pos.getYpos()+1) + ")");
@@ -363,11 +364,12 @@ public class ChessPlayGui extends Application {
 				if(chess.isDebug())
 					System.out.println("The new square was an enemy!");
 				printMove("" + newSquareColor + " " + newSquareName + " at (" +
-					(pos.getXpos()+1) + ", " + (pos.getYpos()+1) + ") defeated!");
+					(taken.getXpos()+1) + ", " + (taken.getYpos()+1) + ") defeated!");
 				playSound.slash();
 			}
 			else
 				playSound.place();
+			checkGameOver();
 			return;
 		}
 		else if(!lookingForMove){//Nothing selected, needs move
@@ -379,6 +381,35 @@ public class ChessPlayGui extends Application {
 		}
 	}
 
+	/**
+	 * Looks for checkmate, stalemate or check on the side whose turn it is
+	 * now, and for a draw by repetition or the fifty-move rule, and prints
+	 * it to the move list. After the game ends no more moves are accepted
+	 * until the board is reset or a game is loaded.
+	 */
+	public void checkGameOver(){
+		String turn = chess.getTurn();
+		String other = turn.equalsIgnoreCase("white") ? "Black" : "White";
+		if(chess.isCheckmated(turn)){
+			gameOver = true;
+			printMove("Checkmate! " + other + " wins.");
+		}
+		else if(chess.isStalemated(turn)){
+			gameOver = true;
+			printMove("Stalemate! The game is a draw.");
+		}
+		else if(chess.isThreefoldRepetition()){
+			gameOver = true;
+			printMove("Threefold repetition! The game is a draw.");
+		}
+		else if(chess.isFiftyMoveDraw()){
+			gameOver = true;
+			printMove("Fifty moves without a capture or Pawn move! The game is a draw.");
+		}
+		else if(chess.isInCheck(turn))
+			printMove(turn + " is in check.");
+	}
+
 	/**
 	 * A method that sets the square at the selected color to an appropriate
 	 * selection color. It first updates the board, as to clear any other
@@ -439,7 +470,7 @@ public class ChessPlayGui extends Application {
 			}//This makes it so when a square is clicked (ignoring objects
 		});//inside, it returns a proper chess coordinate as a Position object
 
-		selectedSquare = new Position(-1, -1);
+		selectedSquare = Position.NONE;
 		lookingForMove = false;
 	}
 
@@ -473,6 +504,7 @@ public class ChessPlayGui extends Application {
 	 */
 	public void resetBoard(){
 		chess.resetBoard();
+		gameOver = false;
 		board.getChildren().clear();
 		updateBoard();
 	}
@@ -530,31 +562,7 @@ public class ChessPlayGui extends Application {
 				System.out.println("Invalid Piece symbol.");
 			return null;
 		}
-		if(symbol.equals("b"))
-			return new Bishop("Black", x, y);
-		else if (symbol.equals("B"))
-			return new Bishop("White", x, y);
-		else if (symbol.equals("K"))
-			return new King("White",   x, y);
-		else if (symbol.equals("k"))
-			return new King("Black",   x, y);
-		else if (symbol.equals("n"))
-			return new Knight("Black", x, y);
-		else if (symbol.equals("N"))
-			return new Knight("White", x, y);
-		else if (symbol.equals("r"))
-			return new Rook("Black",   x, y);
-		else if (symbol.equals("R"))
-			return new Rook("White",   x, y);
-		else if (symbol.equals("q"))
-			return new Queen("Black",  x, y);
-		else if (symbol.equals("Q"))
-			return new Queen("White",  x, y);
-		else if (symbol.equals("p"))
-			return new Pawn("Black",   x, y);
-		else if (symbol.equals("P"))
-			return new Pawn("White",   x, y);
-		return new Blank("Blank",      x, y);
+		return ChessBoard.pieceFromSymbol(symbol.charAt(0), x, y);
 	}
 
 	/**
@@ -580,11 +588,7 @@ public class ChessPlayGui extends Application {
 			System.out.println("File \'" + file.getName() + "\' has been loaded.");
 		//First, some cleanup
 		resetBoard();
-		for(int i = 0; i < 8; i++){
-			for(int j = 0; j < 8; j++){
-				placePiece(new Blank("Blank", i, j));
-			}
-		}
+		chess.clearBoard();
 		moves.getChildren().clear();
 		turnNumber = -1;
 		moveList.clear();
@@ -620,24 +624,21 @@ public class ChessPlayGui extends Application {
 			return;
 		}
 		//now for the actual piece positions
-		for(int i = 0; i < 8; i++){
-			String pieceLine = reader.readLine();
-			//check for validity
-			if(pieceLine.length() != 8){
-				System.out.println("Bad save.");
-				reader.close();
-				return;
-			}
-			for(int j = 7; j >= 0; j--){
-				placePiece(getSavedPiece(pieceLine.charAt(j) + "", i, j));
-			}
+		if(!chess.readPieces(reader)){
+			System.out.println("Bad save.");
+			reader.close();
+			updateBoard();
+			return;
 		}
+		updateBoard();
 		//Now for the list of moves
 		String moveLine = null;
 		//setting a variable returns its data, so this'll go until it creates a null variable
 		while((moveLine = reader.readLine()) != null){
 			printMove(moveLine);
 		}
+		//the saved move list already says how a finished game ended
+		gameOver = chess.isCheckmated(chess.getTurn()) || chess.isStalemated(chess.getTurn());
 
 		reader.close();
 	}
@@ -652,12 +653,7 @@ public class ChessPlayGui extends Application {
 			writer.write("" + turnNumber);
 			writer.newLine();
 			//write positions of pieces
-	        for(int i = 0; i < 8; i++){
-	        	for(int j = 0; j < 8; j++){
-	        		writer.write(chess.getPiece(i, j).symbol());
-	        	}
-	        	writer.newLine();
-	        }
+			chess.writePieces(writer);
 	        //now write the history list
 	        if(moveList.size() < 1){
 	        	if(chess.isDebug())
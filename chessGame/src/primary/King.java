@@ -10,8 +10,12 @@ public class King extends Piece {
 		super(color, position);
 	}
 
+	public int getType(){
+		return BitBoard.KING;
+	}
+
 	public String symbol(){
-		return this.color.equalsIgnoreCase("white")? "K" : "k";
+		return isWhite() ? "K" : "k";
 	}
 
 }
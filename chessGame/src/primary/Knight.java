@@ -10,8 +10,12 @@ public class Knight extends Piece {
 		super(color, position);
 	}
 
+	public int getType(){
+		return BitBoard.KNIGHT;
+	}
+
 	public String symbol(){
-		return this.color.equalsIgnoreCase("white")? "N" : "n";
+		return isWhite() ? "N" : "n";
 	}
 
 }
@@ -0,0 +1,147 @@
+package primary;
+
+/**
+ * Helpers for moves packed into a single int, so move lists can be plain
+ * primitive arrays. The lowest 6 bits are the square moved from, the next 6
+ * the square moved to, and the 4 above that are flags describing what kind
+ * of move it is. Squares use the BitBoard numbering.
+ * <br>
+ * The flags put the rare moves out of the way of the common ones: the
+ * capture bit is set for every capture, en passant included, and the
+ * promotion bit for every promotion, with the two lowest bits picking the
+ * new piece. Castling is stored as the King's two square move, and the
+ * Rook's part of it is worked out from that.
+ *
+ * @author Ethan Arns
+ */
+public final class Move {
+
+	/** Not a move. Never generated, since from and to are the same square */
+	public static final int NONE = 0;
+
+	public static final int QUIET        = 0;
+	public static final int DOUBLE_PUSH  = 1;
+	public static final int KING_CASTLE  = 2;
+	public static final int QUEEN_CASTLE = 3;
+	public static final int CAPTURE      = 4;
+	public static final int EN_PASSANT   = 5;
+	/** Added to one of the promotion pieces below, and to CAPTURE when it takes something */
+	public static final int PROMOTION    = 8;
+
+	public static final int PROMOTE_KNIGHT = PROMOTION;
+	public static final int PROMOTE_BISHOP = PROMOTION | 1;
+	public static final int PROMOTE_ROOK   = PROMOTION | 2;
+	public static final int PROMOTE_QUEEN  = PROMOTION | 3;
+
+	/** Number of different values squares() can return */
+	public static final int SQUARES = 64 * 64;
+
+	private Move(){
+	}
+
+	/**
+	 * Packs a move
+	 * @param from    square moved from
+	 * @param to      square moved to
+	 * @param flags   one of the flag constants
+	 * @return        the packed move
+	 */
+	public static int make(int from, int to, int flags){
+		return from | (to << 6) | (flags << 12);
+	}
+
+	/**
+	 * Gets the square a packed move starts from
+	 * @param move   packed move
+	 * @return       square index
+	 */
+	public static int from(int move){
+		return move & 0x3F;
+	}
+
+	/**
+	 * Gets the square a packed move lands on
+	 * @param move   packed move
+	 * @return       square index
+	 */
+	public static int to(int move){
+		return (move >>> 6) & 0x3F;
+	}
+
+	/**
+	 * Gets the two squares of a packed move without its flags, for indexing
+	 * tables kept by move
+	 * @param move   packed move
+	 * @return       from | to << 6, below SQUARES
+	 */
+	public static int squares(int move){
+		return move & 0xFFF;
+	}
+
+	/**
+	 * Gets the flags of a packed move
+	 * @param move   packed move
+	 * @return       flag value
+	 */
+	public static int flags(int move){
+		return (move >>> 12) & 0xF;
+	}
+
+	/**
+	 * Checks if a packed move takes a piece
+	 * @param move   packed move
+	 * @return       true if it is a capture
+	 */
+	public static boolean isCapture(int move){
+		return (flags(move) & CAPTURE) != 0;
+	}
+
+	/**
+	 * Checks if a packed move turns a Pawn into another piece
+	 * @param move   packed move
+	 * @return       true if it is a promotion
+	 */
+	public static boolean isPromotion(int move){
+		return (flags(move) & PROMOTION) != 0;
+	}
+
+	/**
+	 * Gets the piece a promotion turns the Pawn into
+	 * @param move   packed move, which must be a promotion
+	 * @return       BitBoard.KNIGHT through BitBoard.QUEEN
+	 */
+	public static int promotionType(int move){
+		return BitBoard.KNIGHT + (flags(move) & 3);
+	}
+
+	/**
+	 * Checks if a packed move is either kind of castling
+	 * @param move   packed move
+	 * @return       true if it castles
+	 */
+	public static boolean isCastle(int move){
+		int flags = flags(move);
+		return flags == KING_CASTLE || flags == QUEEN_CASTLE;
+	}
+
+	/**
+	 * Checks if a packed move takes a Pawn en passant
+	 * @param move   packed move
+	 * @return       true if it is an en passant capture
+	 */
+	public static boolean isEnPassant(int move){
+		return flags(move) == EN_PASSANT;
+	}
+
+	/**
+	 * Describes a packed move with board coordinates, such as "(1, 1) to (1, 3)"
+	 * @param move   packed move
+	 * @return       readable description
+	 */
+	public static String toString(int move){
+		int from = from(move);
+		int to = to(move);
+		return "(" + BitBoard.xOf(from) + ", " + BitBoard.yOf(from) + ") to (" +
+			BitBoard.xOf(to) + ", " + BitBoard.yOf(to) + ")";
+	}
+}
@@ -0,0 +1,409 @@
+package primary;
+
+/**
+ * Generates moves straight from a BitBoard. Moves are written as packed ints
+ * (see Move) into an array the caller owns, so generating moves never
+ * creates any objects. generate() writes pseudo-legal moves, which follow
+ * the piece's movement rules but may still leave the mover's own King in
+ * check. generateLegal() writes only the legal ones.
+ * <br>
+ * Both include the special moves. Castling is only written when the King
+ * is not in check and does not pass over an attacked square, since that
+ * can't be seen from the position after the move. Promotions are written
+ * once for each piece the Pawn can become, Queen first.
+ *
+ * @author Ethan Arns
+ */
+public final class MoveGenerator {
+
+	/** Upper bound on moves in any chess position, big enough for any buffer */
+	public static final int MAX_MOVES = 256;
+
+	private MoveGenerator(){
+	}
+
+	/**
+	 * Writes every pseudo-legal move of the side to move into the buffer
+	 * @param board   position to generate moves for
+	 * @param moves   buffer to fill, at least MAX_MOVES long
+	 * @return        number of moves written
+	 */
+	public static int generate(BitBoard board, int moves[]){
+		int side = board.getSide();
+		long own = board.getOccupied(side);
+		long enemy = board.getOccupied(side ^ 1);
+		long occ = board.getAll();
+		long targets = ~own;
+		int count = 0;
+
+		count = generatePawnMoves(board, side, enemy, occ, moves, count);
+		count = generateCastles(board, side, occ, moves, count);
+
+		long knights = board.getPieces(side, BitBoard.KNIGHT);
+		while(knights != 0){
+			int from = Long.numberOfTrailingZeros(knights);
+			count = addMoves(from, Attacks.knight(from) & targets, enemy, moves, count);
+			knights &= knights - 1;
+		}
+		long bishops = board.getPieces(side, BitBoard.BISHOP);
+		while(bishops != 0){
+			int from = Long.numberOfTrailingZeros(bishops);
+			count = addMoves(from, Attacks.bishop(from, occ) & targets, enemy, moves, count);
+			bishops &= bishops - 1;
+		}
+		long rooks = board.getPieces(side, BitBoard.ROOK);
+		while(rooks != 0){
+			int from = Long.numberOfTrailingZeros(rooks);
+			count = addMoves(from, Attacks.rook(from, occ) & targets, enemy, moves, count);
+			rooks &= rooks - 1;
+		}
+		long queens = board.getPieces(side, BitBoard.QUEEN);
+		while(queens != 0){
+			int from = Long.numberOfTrailingZeros(queens);
+			count = addMoves(from, Attacks.queen(from, occ) & targets, enemy, moves, count);
+			queens &= queens - 1;
+		}
+		long kings = board.getPieces(side, BitBoard.KING);
+		while(kings != 0){
+			int from = Long.numberOfTrailingZeros(kings);
+			count = addMoves(from, Attacks.king(from) & targets, enemy, moves, count);
+			kings &= kings - 1;
+		}
+		return count;
+	}
+
+	/**
+	 * Writes every legal move of the side to move into the buffer. Instead of
+	 * trying each move and looking for check afterwards, the checks and pins
+	 * are worked out once up front:
+	 * <br>
+	 * - the King may only step to squares nothing attacks, looked at with
+	 *   the King lifted off the board so it can't shelter behind itself
+	 * <br>
+	 * - in double check only the King can move
+	 * <br>
+	 * - in single check every other piece must capture the checker or step
+	 *   between it and the King
+	 * <br>
+	 * - a pinned piece may only move along the line through it and its King
+	 * <br>
+	 * - en passant takes two Pawns off the same row at once, which can
+	 *   uncover the King in ways a pin doesn't show, so it is checked
+	 *   against the board as it would be after the capture
+	 * <br>
+	 * so no illegal move is ever written.
+	 * @param board   position to generate moves for
+	 * @param moves   buffer to fill, at least MAX_MOVES long
+	 * @return        number of moves written
+	 */
+	public static int generateLegal(BitBoard board, int moves[]){
+		return legal(board, moves, false, false);
+	}
+
+	/**
+	 * Writes only the legal captures and promotions of the side to move,
+	 * en passant included, for quiescence search. Works from the same check
+	 * and pin masks as generateLegal(), with the targets cut down to enemy
+	 * pieces, and skips castling and quiet Pawn pushes altogether.
+	 * @param board   position to generate moves for
+	 * @param moves   buffer to fill, at least MAX_MOVES long
+	 * @return        number of moves written
+	 */
+	public static int generateLegalCaptures(BitBoard board, int moves[]){
+		return legal(board, moves, false, true);
+	}
+
+	/**
+	 * Checks if the side to move has at least one legal move, stopping as
+	 * soon as one is found. Works from the same check and pin masks as
+	 * generateLegal(), and the King goes first since it is the piece most
+	 * likely to be the only one left with a move when it is in check.
+	 * @param board   position to look at
+	 * @return        true if there is a legal move, false for mate or stalemate
+	 */
+	public static boolean hasLegalMove(BitBoard board){
+		return legal(board, null, true, false) > 0;
+	}
+
+	/**
+	 * Shared body of generateLegal(), generateLegalCaptures() and
+	 * hasLegalMove(). With firstOnly set, nothing is written and 1 is
+	 * returned at the first legal move. With capturesOnly set, only captures
+	 * and promotions are written.
+	 */
+	private static int legal(BitBoard board, int moves[], boolean firstOnly, boolean capturesOnly){
+		int side = board.getSide();
+		long own = board.getOccupied(side);
+		long enemy = board.getOccupied(side ^ 1);
+		long occ = board.getAll();
+		long kings = board.getPieces(side, BitBoard.KING);
+		if(kings == 0){
+			//nothing to keep safe, so every move is legal
+			int buffer[] = moves != null ? moves : new int[MAX_MOVES];
+			int count = generate(board, buffer);
+			if(capturesOnly){
+				int kept = 0;
+				for(int i = 0; i < count; i++){
+					if(Move.isCapture(buffer[i]) || Move.isPromotion(buffer[i]))
+						buffer[kept++] = buffer[i];
+				}
+				count = kept;
+			}
+			return firstOnly ? Math.min(count, 1) : count;
+		}
+		int king = Long.numberOfTrailingZeros(kings);
+		int count = 0;
+
+		long kingTargets = Attacks.king(king) & (capturesOnly ? enemy : ~own);
+		long withoutKing = occ ^ kings;
+		while(kingTargets != 0){
+			int to = Long.numberOfTrailingZeros(kingTargets);
+			if(board.attackersTo(to, side ^ 1, withoutKing) == 0){
+				if(firstOnly)
+					return 1;
+				moves[count++] = Move.make(king, to, (enemy & BitBoard.bit(to)) != 0 ? Move.CAPTURE : Move.QUIET);
+			}
+			kingTargets &= kingTargets - 1;
+		}
+
+		long checkers = board.attackersTo(king, side ^ 1, occ);
+		if((checkers & (checkers - 1)) != 0)
+			return count;
+		long checkMask = ~0L;
+		if(checkers != 0)
+			checkMask = checkers | Attacks.between(king, Long.numberOfTrailingZeros(checkers));
+		else if(!firstOnly && !capturesOnly){
+			//castling always leaves the King a legal step to the square it
+			//passes over, so it can never be the first legal move found
+			count = generateCastles(board, side, occ, moves, count);
+		}
+		long pinned = pinnedPieces(board, side, king);
+		long targets = (capturesOnly ? enemy : ~own) & checkMask;
+
+		long knights = board.getPieces(side, BitBoard.KNIGHT) & ~pinned;
+		while(knights != 0){
+			int from = Long.numberOfTrailingZeros(knights);
+			long t = Attacks.knight(from) & targets;
+			if(firstOnly && t != 0)
+				return 1;
+			count = addMoves(from, t, enemy, moves, count);
+			knights &= knights - 1;
+		}
+		long diagonal = board.getPieces(side, BitBoard.BISHOP) | board.getPieces(side, BitBoard.QUEEN);
+		while(diagonal != 0){
+			int from = Long.numberOfTrailingZeros(diagonal);
+			long t = Attacks.bishop(from, occ) & targets;
+			if((pinned & BitBoard.bit(from)) != 0)
+				t &= Attacks.line(king, from);
+			if(firstOnly && t != 0)
+				return 1;
+			count = addMoves(from, t, enemy, moves, count);
+			diagonal &= diagonal - 1;
+		}
+		long straight = board.getPieces(side, BitBoard.ROOK) | board.getPieces(side, BitBoard.QUEEN);
+		while(straight != 0){
+			int from = Long.numberOfTrailingZeros(straight);
+			long t = Attacks.rook(from, occ) & targets;
+			if((pinned & BitBoard.bit(from)) != 0)
+				t &= Attacks.line(king, from);
+			if(firstOnly && t != 0)
+				return 1;
+			count = addMoves(from, t, enemy, moves, count);
+			straight &= straight - 1;
+		}
+
+		long pawns = board.getPieces(side, BitBoard.PAWN);
+		int forward = side == BitBoard.WHITE ? 8 : -8;
+		int startRow = side == BitBoard.WHITE ? 1 : 6;
+		while(pawns != 0){
+			int from = Long.numberOfTrailingZeros(pawns);
+			long allowed = checkMask;
+			if((pinned & BitBoard.bit(from)) != 0)
+				allowed &= Attacks.line(king, from);
+			int to = from + forward;
+			if(capturesOnly && to >= 8 && to < 56){
+				//not about to promote, so only captures are of interest
+			}
+			else if(to >= 0 && to < 64 && (occ & BitBoard.bit(to)) == 0){
+				if((allowed & BitBoard.bit(to)) != 0){
+					if(firstOnly)
+						return 1;
+					count = addPawnMoves(from, to, Move.QUIET, moves, count);
+				}
+				int jump = to + forward;
+				if(!capturesOnly && BitBoard.yOf(from) == startRow && (occ & BitBoard.bit(jump)) == 0 && (allowed & BitBoard.bit(jump)) != 0){
+					if(firstOnly)
+						return 1;
+					moves[count++] = Move.make(from, jump, Move.DOUBLE_PUSH);
+				}
+			}
+			long captures = Attacks.pawn(side, from) & enemy & allowed;
+			if(firstOnly && captures != 0)
+				return 1;
+			while(captures != 0){
+				count = addPawnMoves(from, Long.numberOfTrailingZeros(captures), Move.CAPTURE, moves, count);
+				captures &= captures - 1;
+			}
+			pawns &= pawns - 1;
+		}
+
+		int ep = epSquareFor(board, side);
+		if(ep != BitBoard.NO_SQUARE){
+			long takers = Attacks.pawn(side ^ 1, ep) & board.getPieces(side, BitBoard.PAWN);
+			while(takers != 0){
+				int from = Long.numberOfTrailingZeros(takers);
+				if(enPassantIsSafe(board, side, king, from, ep, checkers)){
+					if(firstOnly)
+						return 1;
+					moves[count++] = Move.make(from, ep, Move.EN_PASSANT);
+				}
+				takers &= takers - 1;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Checks if taking en passant leaves the King safe. The taking Pawn
+	 * leaves its square, the taken one leaves the square behind the landing
+	 * square, and the landing square fills, so the rook and bishop lines to
+	 * the King are traced again over that board. A Knight or Pawn giving
+	 * check has to be the Pawn being taken.
+	 */
+	private static boolean enPassantIsSafe(BitBoard board, int side, int king, int from, int ep, long checkers){
+		int enemy = side ^ 1;
+		long victim = BitBoard.bit(BitBoard.enPassantVictim(ep, side));
+		long after = (board.getAll() ^ BitBoard.bit(from) ^ victim) | BitBoard.bit(ep);
+		long queens = board.getPieces(enemy, BitBoard.QUEEN);
+		if((Attacks.rook(king, after) & (board.getPieces(enemy, BitBoard.ROOK) | queens)) != 0)
+			return false;
+		if((Attacks.bishop(king, after) & (board.getPieces(enemy, BitBoard.BISHOP) | queens)) != 0)
+			return false;
+		long steppers = board.getPieces(enemy, BitBoard.KNIGHT) | board.getPieces(enemy, BitBoard.PAWN);
+		return (checkers & steppers & ~victim) == 0;
+	}
+
+	/**
+	 * Gets the en passant square if it is one the given side can take on.
+	 * The turn is sometimes borrowed to look at the other side's moves, and
+	 * the square left by their own double step must not be used then.
+	 */
+	private static int epSquareFor(BitBoard board, int side){
+		int ep = board.getEpSquare();
+		if(ep == BitBoard.NO_SQUARE || BitBoard.yOf(ep) != (side == BitBoard.WHITE ? 5 : 2))
+			return BitBoard.NO_SQUARE;
+		return ep;
+	}
+
+	/**
+	 * Adds both castling moves if the side still has the right, the squares
+	 * between King and Rook are empty, and neither the King's square nor the
+	 * two it moves over are attacked. The King starts on x = 3 and goes two
+	 * squares toward the Rook.
+	 */
+	private static int generateCastles(BitBoard board, int side, long occ, int moves[], int count){
+		int rights = side == BitBoard.WHITE ? board.getCastling() : board.getCastling() >>> 2;
+		if((rights & (BitBoard.WHITE_KINGSIDE | BitBoard.WHITE_QUEENSIDE)) == 0)
+			return count;
+		int king = BitBoard.square(3, side == BitBoard.WHITE ? 0 : 7);
+		int rook = BitBoard.code(side, BitBoard.ROOK);
+		int enemy = side ^ 1;
+		if(board.pieceAt(king) != BitBoard.code(side, BitBoard.KING) || board.isAttacked(king, enemy))
+			return count;
+		if((rights & BitBoard.WHITE_KINGSIDE) != 0 && board.pieceAt(king - 3) == rook &&
+				(occ & (BitBoard.bit(king - 1) | BitBoard.bit(king - 2))) == 0 &&
+				!board.isAttacked(king - 1, enemy) && !board.isAttacked(king - 2, enemy))
+			moves[count++] = Move.make(king, king - 2, Move.KING_CASTLE);
+		if((rights & BitBoard.WHITE_QUEENSIDE) != 0 && board.pieceAt(king + 4) == rook &&
+				(occ & (BitBoard.bit(king + 1) | BitBoard.bit(king + 2) | BitBoard.bit(king + 3))) == 0 &&
+				!board.isAttacked(king + 1, enemy) && !board.isAttacked(king + 2, enemy))
+			moves[count++] = Move.make(king, king + 2, Move.QUEEN_CASTLE);
+		return count;
+	}
+
+	/**
+	 * Adds a Pawn move, or all four promotions when it reaches the last row
+	 */
+	private static int addPawnMoves(int from, int to, int flags, int moves[], int count){
+		int y = BitBoard.yOf(to);
+		if(y != 0 && y != 7){
+			moves[count++] = Move.make(from, to, flags);
+			return count;
+		}
+		moves[count++] = Move.make(from, to, flags | Move.PROMOTE_QUEEN);
+		moves[count++] = Move.make(from, to, flags | Move.PROMOTE_KNIGHT);
+		moves[count++] = Move.make(from, to, flags | Move.PROMOTE_ROOK);
+		moves[count++] = Move.make(from, to, flags | Move.PROMOTE_BISHOP);
+		return count;
+	}
+
+	/**
+	 * Finds the side's pieces that are pinned to their King: the only piece
+	 * standing between the King and an enemy rook, bishop or queen on the
+	 * same line
+	 */
+	private static long pinnedPieces(BitBoard board, int side, int king){
+		int enemy = side ^ 1;
+		long queens = board.getPieces(enemy, BitBoard.QUEEN);
+		long snipers = (Attacks.rook(king, 0L) & (board.getPieces(enemy, BitBoard.ROOK) | queens))
+			| (Attacks.bishop(king, 0L) & (board.getPieces(enemy, BitBoard.BISHOP) | queens));
+		long occ = board.getAll();
+		long own = board.getOccupied(side);
+		long pinned = 0L;
+		while(snipers != 0){
+			long blockers = Attacks.between(king, Long.numberOfTrailingZeros(snipers)) & occ;
+			if(blockers != 0 && (blockers & (blockers - 1)) == 0)
+				pinned |= blockers & own;
+			snipers &= snipers - 1;
+		}
+		return pinned;
+	}
+
+	/**
+	 * Adds a move from one square to each square in a target set, flagging
+	 * the ones that land on an enemy
+	 */
+	private static int addMoves(int from, long targets, long enemy, int moves[], int count){
+		while(targets != 0){
+			int to = Long.numberOfTrailingZeros(targets);
+			moves[count++] = Move.make(from, to, (enemy & BitBoard.bit(to)) != 0 ? Move.CAPTURE : Move.QUIET);
+			targets &= targets - 1;
+		}
+		return count;
+	}
+
+	/**
+	 * Pawn pushes, double steps from the starting row through an empty
+	 * square, diagonal captures, promotions and en passant
+	 */
+	private static int generatePawnMoves(BitBoard board, int side, long enemy, long occ, int moves[], int count){
+		long pawns = board.getPieces(side, BitBoard.PAWN);
+		int forward = side == BitBoard.WHITE ? 8 : -8;
+		int startRow = side == BitBoard.WHITE ? 1 : 6;
+		while(pawns != 0){
+			int from = Long.numberOfTrailingZeros(pawns);
+			int to = from + forward;
+			if(to >= 0 && to < 64 && (occ & BitBoard.bit(to)) == 0){
+				count = addPawnMoves(from, to, Move.QUIET, moves, count);
+				int jump = to + forward;
+				if(BitBoard.yOf(from) == startRow && (occ & BitBoard.bit(jump)) == 0)
+					moves[count++] = Move.make(from, jump, Move.DOUBLE_PUSH);
+			}
+			long captures = Attacks.pawn(side, from) & enemy;
+			while(captures != 0){
+				count = addPawnMoves(from, Long.numberOfTrailingZeros(captures), Move.CAPTURE, moves, count);
+				captures &= captures - 1;
+			}
+			pawns &= pawns - 1;
+		}
+		int ep = epSquareFor(board, side);
+		if(ep != BitBoard.NO_SQUARE){
+			long takers = Attacks.pawn(side ^ 1, ep) & board.getPieces(side, BitBoard.PAWN);
+			while(takers != 0){
+				moves[count++] = Move.make(Long.numberOfTrailingZeros(takers), ep, Move.EN_PASSANT);
+				takers &= takers - 1;
+			}
+		}
+		return count;
+	}
+}
@@ -10,8 +10,12 @@ public class Pawn extends Piece {
 		super(color, position);
 	}
 
+	public int getType(){
+		return BitBoard.PAWN;
+	}
+
 	public String symbol(){
-		return this.color.equalsIgnoreCase("white")? "P" : "p";
+		return isWhite() ? "P" : "p";
 	}
 
 }
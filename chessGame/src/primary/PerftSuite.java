@@ -0,0 +1,85 @@
+package primary;
+
+/**
+ * Runs perft over a set of standard positions whose counts are known
+ * exactly, printing whether each count is right and how many nodes per
+ * second were counted, both on one thread and split over a ForkJoinPool.
+ * Any change to move generation or making moves should keep every line
+ * passing, and the speeds can be compared from one version to the next.
+ * <br>
+ * Run with: java -cp . primary.PerftSuite [max depth]
+ *
+ * @author Ethan Arns
+ */
+public class PerftSuite {
+
+	/** Reference positions, as FEN, with their known counts from depth 1 up */
+	public static final String POSITIONS[] = {
+		"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+		"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+		"8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+		"r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+		"rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+		"r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10"
+	};
+
+	public static final long COUNTS[][] = {
+		{20, 400, 8902, 197281, 4865609},
+		{48, 2039, 97862, 4085603},
+		{14, 191, 2812, 43238, 674624},
+		{6, 264, 9467, 422333},
+		{44, 1486, 62379, 2103487},
+		{46, 2079, 89890, 3894594}
+	};
+
+	public static void main(String[] args) {
+		int maxDepth = 3;
+		if(args.length > 0){
+			try {
+				maxDepth = Integer.parseInt(args[0]);
+			} catch (NumberFormatException e) {
+				System.out.println("Max depth should be a number, using " + maxDepth);
+			}
+		}
+		System.out.println(runAll(maxDepth) ? "All counts correct." : "Some counts are WRONG.");
+	}
+
+	/**
+	 * Runs every reference position up to the given depth
+	 * @param maxDepth   deepest perft to run
+	 * @return           true if every count matched
+	 */
+	public static boolean runAll(int maxDepth){
+		boolean allPassed = true;
+		long totalNodes = 0;
+		long totalNanos = 0;
+		ChessBoard_ai board = new ChessBoard_ai();
+		for(int i = 0; i < POSITIONS.length; i++){
+			System.out.println("Position " + (i + 1) + ": " + POSITIONS[i]);
+			for(int depth = 1; depth <= Math.min(maxDepth, COUNTS[i].length); depth++){
+				board.loadFen(POSITIONS[i]);
+				long start = System.nanoTime();
+				long nodes = board.perft(depth);
+				long serialNanos = System.nanoTime() - start;
+
+				start = System.nanoTime();
+				long parallelNodes = board.perftParallel(depth);
+				long parallelNanos = System.nanoTime() - start;
+
+				boolean passed = nodes == COUNTS[i][depth - 1] && parallelNodes == nodes;
+				allPassed &= passed;
+				totalNodes += nodes;
+				totalNanos += serialNanos;
+				System.out.println("  depth " + depth + ": " + nodes + (passed ? " ok" : " WRONG, expected " + COUNTS[i][depth - 1]) +
+					"  serial " + nodesPerSecond(nodes, serialNanos) + " nps" +
+					"  parallel " + nodesPerSecond(parallelNodes, parallelNanos) + " nps");
+			}
+		}
+		System.out.println("Total " + totalNodes + " nodes, serial " + nodesPerSecond(totalNodes, totalNanos) + " nps");
+		return allPassed;
+	}
+
+	private static long nodesPerSecond(long nodes, long nanos){
+		return nanos > 0 ? nodes * 1000000000L / nanos : 0;
+	}
+}
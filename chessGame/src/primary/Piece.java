@@ -4,6 +4,9 @@ package primary;
  * The master class for chess pieces to be added to the board class. It cannot
  * be constructed, but is merely a reference for all the subclass methods and
  * properties
+ * <br>
+ * Each piece works out its BitBoard piece code once when it is made, and the
+ * board's rule checks use that instead of the color String and class.
  *
  * @author Ethan Arns
  */
@@ -11,6 +14,7 @@ public abstract class Piece {
 
 	protected String color;
 	protected Position position;
+	protected final int code;
 
 	/**
 	 * Constructor by coordinates
@@ -21,7 +25,8 @@ public abstract class Piece {
 	 */
 	public Piece(String color, int xPos, int yPos){
 		this.color = color;
-		this.position = new Position(xPos, yPos);
+		this.position = Position.of(xPos, yPos);
+		this.code = codeFor(color, getType());
 	}
 
 	/**
@@ -33,6 +38,41 @@ public abstract class Piece {
 	public Piece(String color, Position position){
 		this.color = color;
 		this.position = position;
+		this.code = codeFor(color, getType());
+	}
+
+	/**
+	 * Works out the BitBoard piece code for a color and type
+	 */
+	private static int codeFor(String color, int type){
+		if(type == BitBoard.EMPTY)
+			return BitBoard.EMPTY;
+		return BitBoard.code("white".equalsIgnoreCase(color) ? BitBoard.WHITE : BitBoard.BLACK, type);
+	}
+
+	/**
+	 * Gets the kind of piece as a BitBoard type
+	 *
+	 * @return   BitBoard.PAWN through BitBoard.KING, BitBoard.EMPTY for blanks
+	 */
+	public abstract int getType();
+
+	/**
+	 * Gets the BitBoard piece code, which holds both the type and the color
+	 *
+	 * @return   piece code, BitBoard.EMPTY for blanks
+	 */
+	public int getCode(){
+		return code;
+	}
+
+	/**
+	 * Checks the color without comparing Strings
+	 *
+	 * @return   true for a white piece, false for black pieces and blanks
+	 */
+	public boolean isWhite(){
+		return code != BitBoard.EMPTY && BitBoard.colorOf(code) == BitBoard.WHITE;
 	}
 
 	/**
@@ -83,8 +123,7 @@ public abstract class Piece {
 	 * @param y   y-coordinate
 	 */
 	public void setPosition(int x, int y){
-		this.position.setXpos(x);
-		this.position.setYpos(y);
+		this.position = Position.of(x, y);
 	}
 
 	public String toString(){
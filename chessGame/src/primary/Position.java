@@ -1,15 +1,30 @@
 package primary;
 
 /**
- * Pretty self explanatory. A collection of getters and setters for a class
- * that simplifies location pointing on a chess board
+ * Pretty self explanatory. A pair of board coordinates that simplifies
+ * location pointing on a chess board.
+ * <br>
+ * Positions can't be changed once made, so the same object can be handed
+ * to any number of pieces, callers and threads. Every square of the board
+ * has one shared instance, got with Position.of(), and those should be used
+ * instead of making new ones.
  *
  * @author Ethan Arns
  */
 public class Position {
 
-	public int xPos;
-	public int yPos;
+	/** A position off the board, for when nothing is selected */
+	public static final Position NONE = new Position(-1, -1);
+
+	private static final Position SQUARES[] = new Position[64];
+
+	static {
+		for(int sq = 0; sq < 64; sq++)
+			SQUARES[sq] = new Position(BitBoard.xOf(sq), BitBoard.yOf(sq));
+	}
+
+	public final int xPos;
+	public final int yPos;
 
 	/**
 	 * Constructor with coordinates (4,3)
@@ -30,19 +45,35 @@ public class Position {
 	}
 
 	/**
-	 * Gets x position
-	 * @return   x position
+	 * Gets the shared position for a pair of coordinates. Only coordinates
+	 * off the board make a new object.
+	 *
+	 * @param x   x position coordinate
+	 * @param y   y position coordinate
+	 * @return    the position
 	 */
-	public int getXpos() {
-		return xPos;
+	public static Position of(int x, int y){
+		if(x < 0 || x > 7 || y < 0 || y > 7)
+			return new Position(x, y);
+		return SQUARES[BitBoard.square(x, y)];
+	}
+
+	/**
+	 * Gets the shared position for a BitBoard square index
+	 *
+	 * @param sq   square index from 0 to 63
+	 * @return     the position
+	 */
+	public static Position of(int sq){
+		return SQUARES[sq];
 	}
 
 	/**
-	 * Sets x position
-	 * @param xPos   x position
+	 * Gets x position
+	 * @return   x position
 	 */
-	public void setXpos(int xPos) {
-		this.xPos = xPos;
+	public int getXpos() {
+		return xPos;
 	}
 
 	/**
@@ -54,11 +85,12 @@ public class Position {
 	}
 
 	/**
-	 * Sets y position
-	 * @param yPos   y position
+	 * Gets the BitBoard square index of this position, as used in packed
+	 * moves (see Move)
+	 * @return   square index, only meaningful if the position is on the board
 	 */
-	public void setYpos(int yPos) {
-		this.yPos = yPos;
+	public int getSquare() {
+		return BitBoard.square(xPos, yPos);
 	}
 
 	public String toString(){
@@ -76,4 +108,14 @@ public class Position {
 			return true;
 		return false;
 	}
+
+	@Override
+	public boolean equals(Object o){
+		return o instanceof Position && equals((Position) o);
+	}
+
+	@Override
+	public int hashCode(){
+		return xPos * 31 + yPos;
+	}
 }
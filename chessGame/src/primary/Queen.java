@@ -10,7 +10,11 @@ public class Queen extends Piece {
 		super(color, position);
 	}
 
+	public int getType(){
+		return BitBoard.QUEEN;
+	}
+
 	public String symbol(){
-		return this.color.equalsIgnoreCase("white")? "Q" : "q";
+		return isWhite() ? "Q" : "q";
 	}
 }
@@ -10,8 +10,12 @@ public class Rook extends Piece {
 		super(color, position);
 	}
 
+	public int getType(){
+		return BitBoard.ROOK;
+	}
+
 	public String symbol(){
-		return this.color.equalsIgnoreCase("white")? "R" : "r";
+		return isWhite() ? "R" : "r";
 	}
 
 }
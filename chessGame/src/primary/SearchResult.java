@@ -0,0 +1,157 @@
+package primary;
+
+/**
+ * The outcome of a ChessBoard_ai search. Moves are packed ints (see Move).
+ *
+ * @author Ethan Arns
+ */
+public class SearchResult {
+
+	private final int bestMove;
+	private final int score;
+	private final int depth;
+	private final int pv[];
+	private final long nodes;
+	private final long millis;
+	private final long cutoffs;
+	private final long firstMoveCutoffs;
+
+	/**
+	 * Constructor with everything the search found
+	 *
+	 * @param bestMove   move to play, Move.NONE if there are no legal moves
+	 * @param score      score in centipawns for the side to move
+	 * @param depth      deepest iteration that was finished
+	 * @param pv         principal variation, starting with bestMove
+	 * @param nodes      number of positions searched
+	 * @param millis     time taken in milliseconds
+	 */
+	public SearchResult(int bestMove, int score, int depth, int pv[], long nodes, long millis){
+		this(bestMove, score, depth, pv, nodes, millis, 0, 0);
+	}
+
+	/**
+	 * Constructor with the move ordering statistics as well
+	 *
+	 * @param bestMove           move to play, Move.NONE if there are no legal moves
+	 * @param score              score in centipawns for the side to move
+	 * @param depth              deepest iteration that was finished
+	 * @param pv                 principal variation, starting with bestMove
+	 * @param nodes              number of positions searched
+	 * @param millis             time taken in milliseconds
+	 * @param cutoffs            number of beta cutoffs in the main search
+	 * @param firstMoveCutoffs   how many of those came from the first move tried
+	 */
+	public SearchResult(int bestMove, int score, int depth, int pv[], long nodes, long millis,
+			long cutoffs, long firstMoveCutoffs){
+		this.bestMove = bestMove;
+		this.score = score;
+		this.depth = depth;
+		this.pv = pv;
+		this.nodes = nodes;
+		this.millis = millis;
+		this.cutoffs = cutoffs;
+		this.firstMoveCutoffs = firstMoveCutoffs;
+	}
+
+	/**
+	 * Gets the move the search would play
+	 * @return   packed move, Move.NONE if there are no legal moves
+	 */
+	public int getBestMove(){
+		return bestMove;
+	}
+
+	/**
+	 * Gets the score of the position for the side to move. Mates are scored
+	 * close to ChessBoard_ai.MATE, see isMateScore().
+	 * @return   score in centipawns
+	 */
+	public int getScore(){
+		return score;
+	}
+
+	/**
+	 * Gets the deepest iteration the search finished
+	 * @return   depth in plies
+	 */
+	public int getDepth(){
+		return depth;
+	}
+
+	/**
+	 * Gets the line of play the search expects, best move first
+	 * @return   array of packed moves
+	 */
+	public int[] getPrincipalVariation(){
+		return pv.clone();
+	}
+
+	/**
+	 * Gets the number of positions searched
+	 * @return   node count
+	 */
+	public long getNodes(){
+		return nodes;
+	}
+
+	/**
+	 * Gets how long the search took
+	 * @return   time in milliseconds
+	 */
+	public long getMillis(){
+		return millis;
+	}
+
+	/**
+	 * Gets the search speed
+	 * @return   nodes per second
+	 */
+	public long getNodesPerSecond(){
+		return millis > 0 ? nodes * 1000 / millis : nodes * 1000;
+	}
+
+	/**
+	 * Gets how many times the main search cut off, not counting quiescence
+	 * @return   number of beta cutoffs
+	 */
+	public long getCutoffs(){
+		return cutoffs;
+	}
+
+	/**
+	 * Gets how many cutoffs came from the first move tried
+	 * @return   number of first move beta cutoffs
+	 */
+	public long getFirstMoveCutoffs(){
+		return firstMoveCutoffs;
+	}
+
+	/**
+	 * Gets the share of cutoffs that came from the first move tried, which
+	 * shows how well the moves were ordered. Perfect ordering gives 1.
+	 * @return   fraction from 0 to 1, 0 if there were no cutoffs
+	 */
+	public double getFirstMoveCutoffRate(){
+		return cutoffs > 0 ? (double)firstMoveCutoffs / cutoffs : 0;
+	}
+
+	/**
+	 * Checks if the score is a forced mate for either side
+	 * @return   true if the score is a mate score
+	 */
+	public boolean isMateScore(){
+		return Math.abs(score) >= ChessBoard_ai.MATE - ChessBoard_ai.MAX_PLY;
+	}
+
+	public String toString(){
+		String line = "depth " + depth + " score " + score + " nodes " + nodes +
+			" time " + millis + "ms nps " + getNodesPerSecond();
+		if(cutoffs > 0)
+			line += " firstcut " + Math.round(getFirstMoveCutoffRate() * 1000) / 10.0 + "%";
+		line += " pv";
+		for(int i = 0; i < pv.length; i++)
+			line += " " + Move.toString(pv[i]);
+		return line;
+	}
+}
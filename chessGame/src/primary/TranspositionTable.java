@@ -0,0 +1,176 @@
+package primary;
+
+import java.util.Arrays;
+
+/**
+ * A fixed size hash table of search results, keyed by position hash. Each
+ * entry is two longs in two flat arrays: one packed data word holding the
+ * best move, score, depth, bound type and search generation, and one check
+ * word holding the position hash XORed with that data word.
+ * <br>
+ * The XOR is what lets several search threads share one table without
+ * locks. Two threads writing the same slot at once can leave a check word
+ * from one and a data word from the other, but then the check word no
+ * longer XORs back to the hash being looked up, so the mixed entry is just
+ * treated as a miss.
+ *
+ * @author Ethan Arns
+ */
+public class TranspositionTable {
+
+	/** Score is exact */
+	public static final int EXACT = 1;
+	/** Score is a lower bound, the search failed high */
+	public static final int LOWER = 2;
+	/** Score is an upper bound, the search failed low */
+	public static final int UPPER = 3;
+
+	/** Returned by probe() when the position is not in the table */
+	public static final long MISS = 0L;
+
+	private long checks[];
+	private long data[];
+	private int mask;
+	private int generation;
+
+	/**
+	 * Creates a table using at most the given amount of memory
+	 * @param megabytes   table size in MB, at least 1
+	 */
+	public TranspositionTable(int megabytes){
+		resize(megabytes);
+	}
+
+	/**
+	 * Throws the table away and allocates a new one. The entry count is the
+	 * largest power of two that fits, so the index is a simple mask.
+	 * @param megabytes   table size in MB, at least 1
+	 */
+	public void resize(int megabytes){
+		long bytes = Math.max(1, megabytes) * 1024L * 1024L;
+		long entries = Long.highestOneBit(bytes / 16);
+		if(entries > (1 << 30))
+			entries = 1 << 30;
+		checks = new long[(int)entries];
+		data = new long[(int)entries];
+		mask = (int)entries - 1;
+		generation = 0;
+	}
+
+	/**
+	 * Empties the table, for example between games
+	 */
+	public void clear(){
+		Arrays.fill(checks, 0L);
+		Arrays.fill(data, 0L);
+		generation = 0;
+	}
+
+	/**
+	 * Marks the start of a new search. Entries from older searches are
+	 * replaced before deeper entries from the current one.
+	 */
+	public void newSearch(){
+		generation = (generation + 1) & 0x3F;
+	}
+
+	/**
+	 * Gets the number of entries the table can hold
+	 * @return   entry count
+	 */
+	public int size(){
+		return mask + 1;
+	}
+
+	/**
+	 * Looks a position up
+	 * @param key   position hash
+	 * @return      packed entry, or MISS. Unpack it with the static getters.
+	 */
+	public long probe(long key){
+		int i = (int)key & mask;
+		long d = data[i];
+		long c = checks[i];
+		if((c ^ d) != key || d == MISS)
+			return MISS;
+		return d;
+	}
+
+	/**
+	 * Saves a search result, unless the slot holds a deeper result for
+	 * another position from the current search
+	 * @param key     position hash
+	 * @param move    best move found, Move.NONE if none
+	 * @param score   score of the position
+	 * @param depth   depth that was searched, 0 to 255
+	 * @param bound   EXACT, LOWER or UPPER
+	 */
+	public void store(long key, int move, int score, int depth, int bound){
+		int i = (int)key & mask;
+		long old = data[i];
+		if(old != MISS && (checks[i] ^ old) != key && generationOf(old) == generation && depthOf(old) > depth)
+			return;
+		long d = (move & 0xFFFFL)
+			| ((score & 0xFFFFL) << 16)
+			| ((long)(depth & 0xFF) << 32)
+			| ((long)bound << 40)
+			| ((long)generation << 42);
+		data[i] = d;
+		checks[i] = key ^ d;
+	}
+
+	/**
+	 * Gets how full the table is, by sampling the first thousand slots
+	 * @return   permill of sampled slots used in the current search
+	 */
+	public int hashfull(){
+		int n = Math.min(1000, data.length);
+		int used = 0;
+		for(int i = 0; i < n; i++){
+			if(data[i] != MISS && generationOf(data[i]) == generation)
+				used++;
+		}
+		return used * 1000 / n;
+	}
+
+
+	/*
+	 * Entry unpacking
+	 */
+
+	/**
+	 * @param entry   packed entry from probe()
+	 * @return        stored best move
+	 */
+	public static int moveOf(long entry){
+		return (int)(entry & 0xFFFF);
+	}
+
+	/**
+	 * @param entry   packed entry from probe()
+	 * @return        stored score
+	 */
+	public static int scoreOf(long entry){
+		return (short)(entry >>> 16);
+	}
+
+	/**
+	 * @param entry   packed entry from probe()
+	 * @return        stored depth
+	 */
+	public static int depthOf(long entry){
+		return (int)(entry >>> 32) & 0xFF;
+	}
+
+	/**
+	 * @param entry   packed entry from probe()
+	 * @return        EXACT, LOWER or UPPER
+	 */
+	public static int boundOf(long entry){
+		return (int)(entry >>> 40) & 0x3;
+	}
+
+	private static int generationOf(long entry){
+		return (int)(entry >>> 42) & 0x3F;
+	}
+}
@@ -0,0 +1,87 @@
+package primary;
+
+/**
+ * Random keys for Zobrist hashing. A position's hash is the XOR of the key
+ * for every piece on its square, plus the side key when black is to move,
+ * the key for the castling rights still held and, when a Pawn can be taken
+ * en passant, the key for the file it can be taken on.
+ * Because XOR undoes itself, a move only has to XOR out the keys that went
+ * away and XOR in the ones that appeared, so BitBoard keeps its hash up to
+ * date as it goes instead of rebuilding it.
+ * <br>
+ * The keys come from a fixed seed, so the same position hashes the same way
+ * in every run.
+ *
+ * @author Ethan Arns
+ */
+public final class Zobrist {
+
+	private static final long pieceKeys[][] = new long[12][64];
+	private static final long sideKey;
+	private static final long castlingKeys[] = new long[16];
+	private static final long enPassantKeys[] = new long[8];
+
+	private static long seed = 0x9E3779B97F4A7C15L;
+
+	static {
+		for(int code = 0; code < 12; code++){
+			for(int sq = 0; sq < 64; sq++)
+				pieceKeys[code][sq] = random();
+		}
+		sideKey = random();
+		//rights are a 4 bit set, so every combination gets a key of its own
+		for(int rights = 1; rights < 16; rights++)
+			castlingKeys[rights] = random();
+		for(int x = 0; x < 8; x++)
+			enPassantKeys[x] = random();
+	}
+
+	private Zobrist(){
+	}
+
+	/**
+	 * Key for a piece standing on a square
+	 * @param code   BitBoard piece code
+	 * @param sq     square index
+	 * @return       the key
+	 */
+	public static long piece(int code, int sq){
+		return pieceKeys[code][sq];
+	}
+
+	/**
+	 * Key that is mixed in when black is to move
+	 * @return   the key
+	 */
+	public static long side(){
+		return sideKey;
+	}
+
+	/**
+	 * Key for a set of castling rights. Having none at all hashes to 0.
+	 * @param rights   BitBoard castling rights bits
+	 * @return         the key
+	 */
+	public static long castling(int rights){
+		return castlingKeys[rights];
+	}
+
+	/**
+	 * Key for the file of a square a Pawn can be taken en passant on
+	 * @param sq   square index
+	 * @return     the key
+	 */
+	public static long enPassant(int sq){
+		return enPassantKeys[sq & 7];
+	}
+
+	/**
+	 * xorshift64*, seeded with a constant
+	 */
+	private static long random(){
+		seed ^= seed >>> 12;
+		seed ^= seed << 25;
+		seed ^= seed >>> 27;
+		return seed * 0x2545F4914F6CDD1DL;
+	}
+}